@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Compara la latencia de las lecturas de movimientos con y sin If-None-Match contra una instancia levantada,
+# y muestra los contadores de la cache HTTP (aciertos de respuestas serializadas, 304 devueltos).
+# Uso: ./scripts/http-cache-load.sh <movementId> <productId> <clientId> [peticiones]   (por defecto 200)
+set -euo pipefail
+
+MOVEMENT_ID=$1
+PRODUCT_ID=$2
+CLIENT_ID=$3
+REQUESTS=${4:-200}
+BASE="http://localhost:8083/api/v1/movement"
+
+# promedio en ms de time_total para REQUESTS peticiones, con el ETag en If-None-Match si se pasa
+average_ms() {
+  local url=$1 etag=${2:-} total=0 t
+  for _ in $(seq "$REQUESTS"); do
+    if [ -n "$etag" ]; then
+      t=$(curl -s -o /dev/null -w '%{time_total}' -H "If-None-Match: $etag" "$url")
+    else
+      t=$(curl -s -o /dev/null -w '%{time_total}' "$url")
+    fi
+    total=$(echo "$total + $t" | bc -l)
+  done
+  echo "scale=3; $total * 1000 / $REQUESTS" | bc -l
+}
+
+measure() {
+  local name=$1 url=$2 etag
+  etag=$(curl -s -D - -o /dev/null "$url" | tr -d '\r' | awk -F': ' 'tolower($1) == "etag" { print $2 }')
+  printf '%-10s completo: %8s ms   condicional (304): %8s ms   etag %s\n' \
+    "$name" "$(average_ms "$url")" "$(average_ms "$url" "$etag")" "${etag:-(sin etag)}"
+}
+
+measure "id" "$BASE/$MOVEMENT_ID"
+measure "cliente" "$BASE/client/$CLIENT_ID"
+measure "producto" "$BASE/product/$PRODUCT_ID?from=2000-01-01&to=2100-12-31"
+
+echo
+curl -s "$BASE/admin/http-cache"
+echo
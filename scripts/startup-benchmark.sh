@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Mide el tiempo hasta la primera respuesta HTTP, con y sin el modo fast-startup (AOT + CDS).
+# Uso: ./scripts/startup-benchmark.sh [repeticiones]   (por defecto 5)
+# Requiere Mongo, Redis y Kafka locales como en application.yml.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=8083
+URL="http://localhost:${PORT}/api/v1/movement/__startup_probe__"
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK="$ROOT/target/startup-benchmark"
+
+# cualquier respuesta HTTP (404 incluido) cuenta como primera peticion atendida
+time_to_first_request() {
+  local start now
+  start=$(date +%s%N)
+  "$@" > "$WORK/app.log" 2>&1 &
+  local pid=$!
+  until [ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" != "000" ]; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      echo "la aplicacion termino antes de responder, ver $WORK/app.log" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  now=$(date +%s%N)
+  kill "$pid" && wait "$pid" 2>/dev/null || true
+  echo $(( (now - start) / 1000000 ))
+}
+
+run_mode() {
+  local label=$1; shift
+  local total=0 ms
+  for i in $(seq 1 "$RUNS"); do
+    ms=$(time_to_first_request "$@")
+    echo "  $label #$i: ${ms} ms"
+    total=$((total + ms))
+  done
+  echo "$label promedio: $((total / RUNS)) ms"
+}
+
+mkdir -p "$WORK"
+
+echo "== modo normal"
+(cd "$ROOT" && ./mvnw -B -q clean package -DskipTests)
+cp "$ROOT"/target/movement-service-*.jar "$WORK/normal.jar"
+NORMAL_RESULT=$(run_mode normal java -jar "$WORK/normal.jar" | tee /dev/stderr | tail -1)
+
+echo "== modo fast-startup (AOT + CDS)"
+(cd "$ROOT" && ./mvnw -B -q clean package -DskipTests -Pfast-startup)
+rm -rf "$WORK/fast" && mkdir -p "$WORK"
+java -Djarmode=tools -jar "$ROOT"/target/movement-service-*.jar extract --destination "$WORK/fast"
+FAST_JAR=$(ls "$WORK"/fast/*.jar)
+AOT_FLAGS=(-Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false)
+java -XX:ArchiveClassesAtExit="$WORK/fast/app.jsa" -Dspring.context.exit=onRefresh "${AOT_FLAGS[@]}" -jar "$FAST_JAR" > "$WORK/training.log" 2>&1
+FAST_RESULT=$(run_mode fast-startup java -XX:SharedArchiveFile="$WORK/fast/app.jsa" "${AOT_FLAGS[@]}" -jar "$FAST_JAR" | tee /dev/stderr | tail -1)
+
+echo
+echo "$NORMAL_RESULT"
+echo "$FAST_RESULT"
@@ -0,0 +1,13 @@
+package com.bank.ayrton.movement_service.api.movement;
+
+import com.bank.ayrton.movement_service.entity.Movement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// inserta movimientos nuevos; la implementacion decide si va directo al repositorio o agrupa inserts
+public interface MovementWriter {
+    Mono<Movement> insert(Movement movement);
+    Flux<Movement> insertAll(List<Movement> movements);
+}
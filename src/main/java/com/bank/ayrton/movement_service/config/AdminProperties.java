@@ -0,0 +1,12 @@
+package com.bank.ayrton.movement_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// rutas /api/v1/movement/admin/** (reglas, batch, conciliacion, cache http)
+@Data
+@ConfigurationProperties(prefix = "movement.admin")
+public class AdminProperties {
+
+    private String secret; // secreto compartido del header X-Admin-Secret; sin valor las rutas admin responden 401
+}
@@ -0,0 +1,49 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.dto.BalanceAdjustment;
+import com.bank.ayrton.movement_service.dto.BootcoinTransactionEvent;
+import com.bank.ayrton.movement_service.dto.BootcoinWalletDto;
+import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.dto.ProductMovementSum;
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy;
+import com.bank.ayrton.movement_service.dto.ThirdPartyPaymentRequest;
+import com.bank.ayrton.movement_service.dto.YankiMovementEvent;
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+// registra las clases que Jackson arma por reflexion (eventos kafka, DTOs lombok, cache redis)
+// para que sigan funcionando cuando el contexto se genera con Spring AOT (perfil fast-startup)
+public class AotRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> JSON_TYPES = List.of(
+            YankiMovementEvent.class,
+            BootcoinTransactionEvent.class,
+            BootcoinWalletDto.class,
+            ClientDto.class,
+            ProductDto.class,
+            ThirdPartyPaymentRequest.class,
+            Movement.class,
+            BalanceAdjustment.class,
+            BatchRun.class,
+            ProductMovementSum.class,
+            ReconciliationDiscrepancy.class,
+            MovementHttpCache.Stats.class
+    );
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : JSON_TYPES) {
+            hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// batch de fin de mes: comision de mantenimiento e intereses de creditos (movement.batch.*)
+@Data
+@ConfigurationProperties(prefix = "movement.batch")
+public class BatchProperties {
+
+    private boolean enabled = false;                // apagado hasta que el MS producto tenga afterId y /balances/adjust
+    private String cron = "0 0 2 1 * *";            // lo lee el @Scheduled de MonthlyBatchService
+    private int pageSize = 2000;                    // productos por pagina pedida al MS producto
+    private int chunkSize = 250;                    // productos por particion (un insertMany + un ajuste de saldos)
+    private int parallelism = 8;                    // particiones procesandose a la vez
+    private Duration lease = Duration.ofMinutes(10); // sin checkpoint en este tiempo, otra instancia puede retomar
+    private Map<ProductSubtype, Double> monthlyInterestRates = defaultRates();
+
+    private static Map<ProductSubtype, Double> defaultRates() {
+        Map<ProductSubtype, Double> rates = new EnumMap<>(ProductSubtype.class);
+        rates.put(ProductSubtype.PERSONAL_CREDIT, 0.015);
+        rates.put(ProductSubtype.BUSINESS_CREDIT, 0.012);
+        rates.put(ProductSubtype.CREDIT_CARD, 0.03);
+        return rates;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bank.ayrton.movement_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// modo cluster por afinidad de producto (movement.cluster.*): cada instancia es duena de un rango del
+// hash de productId y las operaciones de productos ajenos se reenvian a su dueno
+@Data
+@ConfigurationProperties(prefix = "movement.cluster")
+public class ClusterProperties {
+
+    private boolean enabled = false;
+    private Discovery discovery = Discovery.EUREKA;
+    private String selfUrl;                            // url base de esta instancia; en EUREKA se toma del registro si falta
+    private List<String> members = new ArrayList<>();  // urls base de las instancias, solo para STATIC
+    private int virtualNodes = 128;                    // puntos por instancia en el anillo, mas puntos = reparto mas parejo
+    private Duration refreshInterval = Duration.ofSeconds(10);
+    private String secret;                             // secreto compartido de la ruta interna, obligatorio con enabled
+
+    public enum Discovery {
+        EUREKA,
+        STATIC
+    }
+}
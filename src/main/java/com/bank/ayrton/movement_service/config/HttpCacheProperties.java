@@ -0,0 +1,24 @@
+package com.bank.ayrton.movement_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// ETags y peticiones condicionales de las lecturas de movimientos (movement.http-cache.*)
+@Data
+@ConfigurationProperties(prefix = "movement.http-cache")
+public class HttpCacheProperties {
+
+    private boolean enabled = true;
+    private Backend backend = Backend.LOCAL;   // LOCAL: watermarks en memoria, REDIS: compartidos entre instancias
+    private int watermarkSlots = 65536;        // contadores del backend local (se redondea a potencia de 2)
+    private int responseCacheSize = 4096;      // respuestas serializadas de los ids mas pedidos, 0 = sin cache
+    private Duration retryInterval = Duration.ofSeconds(5);    // reintento de los watermarks que el backend no pudo mover
+    private Duration responseCacheTtl = Duration.ofMinutes(10); // vida maxima de una respuesta guardada, ademas del watermark del id
+
+    public enum Backend {
+        LOCAL,
+        REDIS
+    }
+}
@@ -1,47 +1,41 @@
 package com.bank.ayrton.movement_service.config;
 
-import com.bank.ayrton.movement_service.dto.YankiMovementEvent;
+import com.bank.ayrton.movement_service.config.logging.CorrelationRecordInterceptor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@ImportRuntimeHints(AotRuntimeHints.class) // tipos deserializados por reflexion, necesarios con AOT
 public class KafkaConsumerConfig {
 
     @Bean
-    public ConsumerFactory<String, YankiMovementEvent> consumerFactory() {
-        JsonDeserializer<YankiMovementEvent> deserializer = new JsonDeserializer<>(YankiMovementEvent.class);
-        deserializer.addTrustedPackages("*"); // permite todas las clases
-        deserializer.setUseTypeMapperForKey(true);
+    public ConsumerFactory<String, Object> consumerFactory() {
+        // acepta JSON y Smile en los mismos topicos mientras los productores migran al formato binario
+        ErrorHandlingDeserializer<Object> deserializer = new ErrorHandlingDeserializer<>(new MovementEventDeserializer());
 
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
         props.put(ConsumerConfig.GROUP_ID_CONFIG, "movement-group");
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
-        // Usa ErrorHandlingDeserializer
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, deserializer);
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-
         return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, YankiMovementEvent> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, YankiMovementEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setRecordInterceptor(new CorrelationRecordInterceptor()); // ids de traza/correlacion en el MDC
         return factory;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.bank.ayrton.movement_service.config;
 
 import com.bank.ayrton.movement_service.api.movement.MovementService;
+import com.bank.ayrton.movement_service.config.logging.LoggingContext;
 import com.bank.ayrton.movement_service.dto.BootcoinTransactionEvent;
 import com.bank.ayrton.movement_service.dto.BootcoinWalletDto;
 import com.bank.ayrton.movement_service.dto.TransferMethod;
@@ -26,11 +27,28 @@ public class KafkaMovementListener {
 
     @KafkaListener(topics = "yanki-transactions", groupId = "movement-group")
     public void listen(YankiMovementEvent event) {
-        log.info("Evento Yanki recibido: de {} a {} por {}", event.getFromCard(), event.getToCard(), event.getAmount());
+        if (log.isInfoEnabled()) { // 3 parametros arman un Object[] aunque el nivel este apagado
+            log.info("Evento Yanki recibido: de {} a {} por {}", event.getFromCard(), event.getToCard(), event.getAmount());
+        }
 
         movementService.transfer(event.getFromCard(), event.getToCard(), event.getAmount())
                 .doOnSuccess(v -> log.info("Transferencia Yanki procesada correctamente"))
                 .doOnError(err -> log.error("Error procesando transferencia Yanki: {}", err.getMessage()))
+                .contextWrite(LoggingContext.fromMdc())
+                .subscribe();
+    }
+
+    // pasa por MovementService para que en modo cluster lo procese la instancia duena del producto origen
+    @KafkaListener(topics = "yanki-movements", groupId = "movement-group")
+    public void handleYankiMovement(YankiMovementEvent event) {
+        if (log.isInfoEnabled()) {
+            log.info("Recibiendo transferencia Yanki: de {} a {} por {}", event.getFromCard(), event.getToCard(), event.getAmount());
+        }
+
+        movementService.transfer(event.getFromCard(), event.getToCard(), event.getAmount())
+                .doOnSuccess(unused -> log.info("Transferencia Yanki procesada correctamente"))
+                .doOnError(error -> log.error("Error al procesar transferencia Yanki: {}", error.getMessage()))
+                .contextWrite(LoggingContext.fromMdc())
                 .subscribe();
     }
 
@@ -69,11 +87,14 @@ public class KafkaMovementListener {
                         return Mono.error(new RuntimeException("Uno de los productos asociados es null"));
                     }
 
-                    log.info("Bootcoin transferencia - de {} a {} por {}", fromProductId, toProductId, event.getAmount());
+                    if (log.isInfoEnabled()) {
+                        log.info("Bootcoin transferencia - de {} a {} por {}", fromProductId, toProductId, event.getAmount());
+                    }
 
                     return movementService.transfer(fromProductId, toProductId, event.getAmount());
                 }).doOnSuccess(r -> log.info("Transferencia de Bootcoin completada exitosamente"))
                 .doOnError(error -> log.error("Error en transferencia Bootcoin: {}", error.getMessage()))
+                .contextWrite(LoggingContext.fromMdc())
                 .subscribe();
     }
 
@@ -0,0 +1,128 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.dto.BootcoinTransactionEvent;
+import com.bank.ayrton.movement_service.dto.YankiMovementEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// deserializa eventos de movimientos en JSON o en Smile (JSON binario de Jackson, mas chico y rapido de leer).
+// El formato se decide por el header contentType y, si no viene, por la cabecera ":)\n" que empieza todo documento Smile.
+// El tipo sale del topico, asi no hace falta el type mapper ni escanear paquetes de confianza; para topicos
+// desconocidos se usa el JsonDeserializer de siempre con los headers de tipo
+public class MovementEventDeserializer implements Deserializer<Object> {
+
+    public static final String CONTENT_TYPE_HEADER = "contentType";
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    // el "esquema" son los DTOs: mismos nombres de campo en JSON y en Smile
+    private static final Map<String, Class<?>> TYPES_BY_TOPIC = Map.of(
+            "yanki-transactions", YankiMovementEvent.class,
+            "yanki-movements", YankiMovementEvent.class,
+            "bootcoin.yanki.transfer", BootcoinTransactionEvent.class,
+            "bootcoin.account.transfer", BootcoinTransactionEvent.class
+    );
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    private static final byte[] SMILE_CONTENT_TYPE_BYTES = SMILE_CONTENT_TYPE.getBytes(StandardCharsets.US_ASCII);
+
+    // los ObjectReader son inmutables y reutilizan tablas de simbolos y buffers internos entre llamadas
+    private final Map<String, ObjectReader> jsonReaders;
+    private final Map<String, ObjectReader> smileReaders;
+    private final JsonDeserializer<YankiMovementEvent> fallback;
+
+    public MovementEventDeserializer() {
+        ObjectMapper json = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        SmileMapper smile = SmileMapper.builder()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .build();
+        this.jsonReaders = readers(json);
+        this.smileReaders = readers(smile);
+
+        // sin headers de tipo se asume evento yanki; con headers solo se aceptan los DTOs del servicio
+        this.fallback = new JsonDeserializer<>(YankiMovementEvent.class);
+        this.fallback.addTrustedPackages(YankiMovementEvent.class.getPackageName());
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        fallback.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return read(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        fallback.close();
+    }
+
+    private Object read(String topic, Headers headers, byte[] data) {
+        boolean smile = isSmile(headers, data);
+        ObjectReader reader = (smile ? smileReaders : jsonReaders).get(topic);
+        try {
+            if (reader != null) {
+                return reader.readValue(data);
+            }
+            if (smile) {
+                throw new SerializationException("Evento Smile en topico sin tipo registrado: " + topic);
+            }
+            return fallback.deserialize(topic, headers, data);
+        } catch (IOException e) {
+            throw new SerializationException("No se pudo deserializar evento del topico " + topic, e);
+        }
+    }
+
+    private static boolean isSmile(Headers headers, byte[] data) {
+        if (headers != null) {
+            Header contentType = headers.lastHeader(CONTENT_TYPE_HEADER);
+            if (contentType != null) {
+                // el header puede venir como texto plano o como string JSON (con comillas) segun el header mapper
+                byte[] value = contentType.value();
+                int start = value.length > 0 && value[0] == '"' ? 1 : 0;
+                return startsWith(value, start, SMILE_CONTENT_TYPE_BYTES);
+            }
+        }
+        return startsWith(data, 0, SMILE_HEADER);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        if (data.length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, ObjectReader> readers(ObjectMapper mapper) {
+        Map<String, ObjectReader> readers = new HashMap<>();
+        TYPES_BY_TOPIC.forEach((topic, type) -> readers.put(topic, mapper.readerFor(type)));
+        return Map.copyOf(readers);
+    }
+}
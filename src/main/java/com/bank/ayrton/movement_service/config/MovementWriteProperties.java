@@ -0,0 +1,17 @@
+package com.bank.ayrton.movement_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// buffer de escritura de movimientos (movement.write-buffer.*)
+@Data
+@ConfigurationProperties(prefix = "movement.write-buffer")
+public class MovementWriteProperties {
+
+    private boolean enabled = true;                   // false = un insert por movimiento, sin agrupar
+    private int maxBatchSize = 256;                   // maximo de documentos por insertMany
+    private Duration maxDelay = Duration.ofMillis(2); // tiempo maximo que un insert espera a juntar lote
+    private int maxInFlight = 4;                      // lotes escribiendose en paralelo
+}
@@ -0,0 +1,28 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.api.movement.MovementRepository;
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.service.cache.CacheAwareMovementWriter;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.bank.ayrton.movement_service.service.movement.BatchingMovementWriter;
+import com.bank.ayrton.movement_service.service.movement.DirectMovementWriter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+@Configuration
+public class MovementWriterConfig {
+
+    @Bean
+    public MovementWriter movementWriter(MovementWriteProperties properties,
+                                         MovementRepository repository,
+                                         ReactiveMongoTemplate mongoTemplate,
+                                         MovementHttpCache httpCache) {
+        MovementWriter writer = properties.isEnabled()
+                ? new BatchingMovementWriter(mongoTemplate,
+                        properties.getMaxBatchSize(), properties.getMaxDelay(), properties.getMaxInFlight())
+                : new DirectMovementWriter(repository);
+        // los inserts invalidan los ETag del historial del cliente y del producto
+        return new CacheAwareMovementWriter(writer, httpCache);
+    }
+}
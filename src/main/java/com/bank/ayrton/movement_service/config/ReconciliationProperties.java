@@ -0,0 +1,23 @@
+package com.bank.ayrton.movement_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// conciliacion entre movimientos y saldos de producto (movement.reconciliation.*)
+@Data
+@ConfigurationProperties(prefix = "movement.reconciliation")
+public class ReconciliationProperties {
+
+    private int pageSize = 2000;            // productos por pagina pedida al MS producto
+    private int cursorBatchSize = 1000;     // documentos por lote del cursor de la agregacion
+    private int correctionConcurrency = 64; // inserts de correcciones en vuelo
+    private double tolerance = 0.01;        // diferencias menores se consideran redondeo
+    // antes de corregir se espera esto y se vuelve a leer saldo y movimientos del producto: da tiempo a que llegue
+    // un movimiento en vuelo (saldo ya actualizado, insert pendiente)
+    private Duration recheckDelay = Duration.ofSeconds(2);
+    // true cuando el saldo inicial de cada producto ya esta en el historial (un DEPOSIT o ajuste de apertura).
+    // Sin eso el saldo de apertura sale como diferencia y correct=true lo "corregiria", asi que se rechaza
+    private boolean openingBalancesRecorded = false;
+}
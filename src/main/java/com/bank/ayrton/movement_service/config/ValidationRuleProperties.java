@@ -0,0 +1,49 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.rules.RuleKind;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// reglas de negocio de movimientos por (subtipo de producto, tipo de movimiento) (movement.validation.*).
+// Si no se configuran se usan las reglas de siempre
+@Data
+@ConfigurationProperties(prefix = "movement.validation")
+public class ValidationRuleProperties {
+
+    private List<RuleDefinition> rules = defaultRules();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleDefinition {
+        private RuleKind kind;
+        private List<ProductSubtype> productSubtypes = new ArrayList<>(); // vacio = todos los subtipos
+        private List<MovementType> movementTypes = new ArrayList<>();     // vacio = todos los tipos
+        private List<String> allowedClientTypes = new ArrayList<>();      // solo para CLIENT_TYPE
+        private String message;                                           // null = mensaje por defecto de la regla
+    }
+
+    public static List<RuleDefinition> defaultRules() {
+        List<RuleDefinition> rules = new ArrayList<>();
+        // solo 'personal' o 'empresarial' pueden tener tarjeta de credito
+        rules.add(new RuleDefinition(RuleKind.CLIENT_TYPE, List.of(ProductSubtype.CREDIT_CARD), List.of(),
+                List.of("personal", "empresarial"), null));
+        // plazo fijo solo permite retiro en un dia especifico del mes
+        rules.add(new RuleDefinition(RuleKind.ALLOWED_DAY, List.of(ProductSubtype.FIXED_TERM),
+                List.of(MovementType.WITHDRAWAL), List.of(), null));
+        // comision si se excede el limite de transacciones gratuitas
+        rules.add(new RuleDefinition(RuleKind.TRANSACTION_FEE, List.of(), List.of(), List.of(), null));
+        // no debe exceder el limite de credito disponible
+        rules.add(new RuleDefinition(RuleKind.CREDIT_LIMIT,
+                List.of(ProductSubtype.PERSONAL_CREDIT, ProductSubtype.BUSINESS_CREDIT, ProductSubtype.CREDIT_CARD),
+                List.of(MovementType.WITHDRAWAL), List.of(), null));
+        return rules;
+    }
+}
@@ -0,0 +1,38 @@
+package com.bank.ayrton.movement_service.config;
+
+import com.bank.ayrton.movement_service.dto.ClientSubtype;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.velocity.VelocityScope;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// reglas de velocidad (movement.velocity.*) para rechazar rafagas sospechosas de movimientos
+@Data
+@ConfigurationProperties(prefix = "movement.velocity")
+public class VelocityProperties {
+
+    private boolean enabled = true;
+    private Backend backend = Backend.LOCAL;   // LOCAL: memoria de la instancia, REDIS: compartido entre instancias
+    private int buckets = 6;                   // cantidad de sub-ventanas del anillo, mas buckets = ventana mas precisa
+    private Duration evictionInterval = Duration.ofMinutes(1);
+    private List<Rule> rules = new ArrayList<>();
+
+    public enum Backend {
+        LOCAL,
+        REDIS
+    }
+
+    @Data
+    public static class Rule {
+        private MovementType movementType;
+        private ClientSubtype clientSubtype;   // null = aplica a todos los subtipos
+        private VelocityScope scope = VelocityScope.CLIENT;
+        private Duration window = Duration.ofMinutes(5);
+        private Long maxCount;                 // null = sin limite de cantidad
+        private Double maxAmount;              // null = sin limite de monto acumulado
+    }
+}
@@ -1,8 +1,13 @@
 package com.bank.ayrton.movement_service.config;
 
+import com.bank.ayrton.movement_service.config.logging.LoggingContext;
+import com.bank.ayrton.movement_service.service.cluster.ClusterSecretWebFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 @Configuration
 public class WebClientConfig {
@@ -21,6 +26,22 @@ public class WebClientConfig {
                 .build();
     }
 
+    @Bean
+    public WebClient clusterWebClient(WebClient.Builder builder, ClusterProperties clusterProperties) {
+        // url de la instancia duena en cada llamada (modo cluster); el correlation id viaja al reenviar
+        if (StringUtils.hasText(clusterProperties.getSecret())) {
+            builder.defaultHeader(ClusterSecretWebFilter.SECRET_HEADER, clusterProperties.getSecret());
+        }
+        return builder
+                .filter((request, next) -> Mono.deferContextual(ctx -> next.exchange(
+                        ctx.hasKey(LoggingContext.CORRELATION_ID)
+                                ? ClientRequest.from(request)
+                                        .header(LoggingContext.CORRELATION_HEADER, ctx.<String>get(LoggingContext.CORRELATION_ID))
+                                        .build()
+                                : request)))
+                .build();
+    }
+
     @Bean
     public WebClient bootcoinWebClient(WebClient.Builder builder) {
         return builder.baseUrl("http://localhost:8087/api/v1/bootcoin")// URL del servicio bootcoin
@@ -0,0 +1,27 @@
+package com.bank.ayrton.movement_service.config.logging;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// toma (o genera) trace id y correlation id de cada peticion HTTP y los deja en el Context de Reactor
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdWebFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        String traceId = LoggingContext.traceIdFrom(headers.getFirst(LoggingContext.TRACEPARENT_HEADER));
+        String correlationId = LoggingContext.correlationIdFrom(headers.getFirst(LoggingContext.CORRELATION_HEADER), traceId);
+
+        exchange.getResponse().getHeaders().set(LoggingContext.CORRELATION_HEADER, correlationId);
+        return chain.filter(exchange)
+                .contextWrite(LoggingContext.of(traceId, correlationId));
+    }
+}
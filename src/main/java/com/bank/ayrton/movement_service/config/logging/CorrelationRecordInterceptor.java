@@ -0,0 +1,34 @@
+package com.bank.ayrton.movement_service.config.logging;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.MDC;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.nio.charset.StandardCharsets;
+
+// pone en el MDC los ids del registro de kafka mientras corre el listener; los listeners los pasan
+// a su cadena reactiva con LoggingContext.fromMdc()
+public class CorrelationRecordInterceptor implements RecordInterceptor<String, Object> {
+
+    @Override
+    public ConsumerRecord<String, Object> intercept(ConsumerRecord<String, Object> record, Consumer<String, Object> consumer) {
+        String traceId = LoggingContext.traceIdFrom(header(record, LoggingContext.TRACEPARENT_HEADER));
+        MDC.put(LoggingContext.TRACE_ID, traceId);
+        MDC.put(LoggingContext.CORRELATION_ID,
+                LoggingContext.correlationIdFrom(header(record, LoggingContext.CORRELATION_HEADER), traceId));
+        return record;
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<String, Object> record, Consumer<String, Object> consumer) {
+        MDC.remove(LoggingContext.TRACE_ID);
+        MDC.remove(LoggingContext.CORRELATION_ID);
+    }
+
+    private static String header(ConsumerRecord<String, Object> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.bank.ayrton.movement_service.config.logging;
+
+import io.micrometer.context.ContextRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Configuration;
+
+// registra traceId y correlationId en el ContextRegistry al arrancar, antes de atender peticiones o eventos
+@Configuration
+public class LoggingConfig {
+
+    @PostConstruct
+    public void registerMdcAccessors() {
+        LoggingContext.registerMdcAccessors(ContextRegistry.getInstance());
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank.ayrton.movement_service.config.logging;
+
+import io.micrometer.context.ContextRegistry;
+import org.slf4j.MDC;
+import reactor.util.context.Context;
+
+import java.util.UUID;
+
+// ids de traza y correlacion que viajan en el Context de Reactor (HTTP y kafka) y se copian al MDC
+// en cada operador (spring.reactor.context-propagation=auto), asi los logs JSON los incluyen
+public final class LoggingContext {
+
+    public static final String TRACE_ID = "traceId";
+    public static final String CORRELATION_ID = "correlationId";
+    public static final String CORRELATION_HEADER = "X-Correlation-Id";
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private LoggingContext() {
+    }
+
+    // los accesores del MDC los registra LoggingConfig al iniciar el contexto, no la carga de esta clase:
+    // asi no dependen de que algo toque LoggingContext antes de la primera cadena reactiva
+    public static void registerMdcAccessors(ContextRegistry registry) {
+        for (String key : new String[]{TRACE_ID, CORRELATION_ID}) {
+            registry.registerThreadLocalAccessor(key,
+                    () -> MDC.get(key),
+                    value -> MDC.put(key, value),
+                    () -> MDC.remove(key));
+        }
+    }
+
+    public static Context of(String traceId, String correlationId) {
+        return Context.of(TRACE_ID, traceId, CORRELATION_ID, correlationId);
+    }
+
+    // copia lo que haya en el MDC del hilo actual (ej. listener de kafka) al Context de la cadena reactiva
+    public static Context fromMdc() {
+        String traceId = MDC.get(TRACE_ID);
+        String correlationId = MDC.get(CORRELATION_ID);
+        return traceId != null && correlationId != null ? of(traceId, correlationId) : Context.empty();
+    }
+
+    // trace id del header W3C traceparent (00-<trace>-<span>-<flags>) o uno nuevo
+    public static String traceIdFrom(String traceparent) {
+        if (traceparent != null && traceparent.length() >= 35 && traceparent.charAt(2) == '-') {
+            return traceparent.substring(3, 35);
+        }
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    public static String correlationIdFrom(String header, String traceId) {
+        return header != null && !header.isBlank() ? header : traceId;
+    }
+}
@@ -0,0 +1,55 @@
+package com.bank.ayrton.movement_service.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// muestreo por logger de los logs de exito (INFO y menores): solo pasa la fraccion configurada.
+// WARN, ERROR y cualquier log con excepcion pasan siempre. Se configura en logback-spring.xml con
+// <sample>clase.del.Logger=0.1</sample>: el nombre tiene que ser exacto (o una clase anidada), no un paquete,
+// para no muestrear por accidente logs de arranque u otros que no son del camino de cada peticion.
+// Corre antes de crear el evento, los descartados no cuestan formateo
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String[] loggers = new String[0];
+    private double[] rates = new double[0];
+
+    public void addSample(String sample) {
+        int separator = sample.lastIndexOf('=');
+        if (separator <= 0) {
+            addError("Muestreo invalido, se espera logger=tasa: " + sample);
+            return;
+        }
+        loggers = Arrays.copyOf(loggers, loggers.length + 1);
+        rates = Arrays.copyOf(rates, rates.length + 1);
+        loggers[loggers.length - 1] = sample.substring(0, separator).trim();
+        rates[rates.length - 1] = Double.parseDouble(sample.substring(separator + 1).trim());
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // los isInfoEnabled() llegan sin format: no se muestrean, si no se descartaria dos veces
+        if (format == null || t != null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        String name = logger.getName();
+        for (int i = 0; i < loggers.length; i++) {
+            if (matches(name, loggers[i])) {
+                return rates[i] >= 1.0 || ThreadLocalRandom.current().nextDouble() < rates[i]
+                        ? FilterReply.NEUTRAL
+                        : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    private static boolean matches(String name, String logger) {
+        return name.startsWith(logger)
+                && (name.length() == logger.length() || name.charAt(logger.length()) == '$');
+    }
+}
@@ -0,0 +1,52 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.config.AdminProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// las rutas admin reemplazan reglas, lanzan el batch mensual y corrigen saldos: solo pasan con el secreto
+// compartido (movement.admin.secret), igual que la ruta interna del modo cluster
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // despues del correlation id, asi el rechazo queda con su id en el log
+public class AdminSecretWebFilter implements WebFilter {
+
+    public static final String ADMIN_PATH = "/api/v1/movement/admin";
+    public static final String SECRET_HEADER = "X-Admin-Secret";
+
+    private final byte[] secret;
+
+    public AdminSecretWebFilter(AdminProperties properties) {
+        this.secret = properties.getSecret() != null ? properties.getSecret().trim().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (secret.length == 0) {
+            log.warn("movement.admin.secret sin valor: las rutas {} responden 401", ADMIN_PATH);
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith(ADMIN_PATH)) {
+            return chain.filter(exchange);
+        }
+        String provided = exchange.getRequest().getHeaders().getFirst(SECRET_HEADER);
+        // comparacion en tiempo constante; sin secreto configurado no pasa nadie
+        if (secret.length == 0 || provided == null
+                || !MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Peticion admin rechazada: {} {} desde {}", exchange.getRequest().getMethod(),
+                    exchange.getRequest().getPath(), exchange.getRequest().getRemoteAddress());
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange);
+    }
+}
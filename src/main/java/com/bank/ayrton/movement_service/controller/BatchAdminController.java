@@ -0,0 +1,41 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.service.batch.MonthlyBatchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+// lanzar a mano el batch de fin de mes de un periodo (yyyy-MM) y consultar su avance
+@RestController
+@RequestMapping("/api/v1/movement/admin/batch/monthly")
+@RequiredArgsConstructor
+public class BatchAdminController {
+
+    private final MonthlyBatchService batchService;
+
+    @PostMapping("/{period}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void start(@PathVariable String period) {
+        batchService.start(parse(period));
+    }
+
+    @GetMapping("/{period}")
+    public Mono<BatchRun> status(@PathVariable String period) {
+        return batchService.status(parse(period))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No hay ejecucion para " + period)));
+    }
+
+    private YearMonth parse(String period) {
+        try {
+            return YearMonth.parse(period);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Periodo invalido, se espera yyyy-MM: " + period);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// contadores de la cache HTTP de movimientos (aciertos, 304 devueltos) para medir su efecto
+@RestController
+@RequestMapping("/api/v1/movement/admin/http-cache")
+@RequiredArgsConstructor
+public class HttpCacheAdminController {
+
+    private final MovementHttpCache httpCache;
+
+    @GetMapping
+    public MovementHttpCache.Stats stats() {
+        return httpCache.stats();
+    }
+}
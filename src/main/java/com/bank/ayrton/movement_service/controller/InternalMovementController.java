@@ -0,0 +1,45 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.dto.ThirdPartyPaymentRequest;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.service.cluster.ClusterRoutingMovementService;
+import com.bank.ayrton.movement_service.service.movement.MovementServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+// ruta interna del modo cluster: recibe las operaciones reenviadas por otras instancias y las procesa
+// siempre aca (sin volver a rutear), aunque los anillos de ambas instancias difieran un momento al escalar
+@RestController
+@RequestMapping(ClusterRoutingMovementService.INTERNAL_PATH)
+@RequiredArgsConstructor
+public class InternalMovementController {
+
+    private final MovementServiceImpl local;
+
+    @PostMapping
+    public Mono<Movement> save(@RequestBody Movement movement) {
+        return local.save(movement);
+    }
+
+    @PostMapping("/transfer")
+    public Mono<Void> transfer(@RequestParam String fromProductId,
+                               @RequestParam String toProductId,
+                               @RequestParam Double amount) {
+        return local.transfer(fromProductId, toProductId, amount);
+    }
+
+    @PostMapping("/pay-third-party")
+    public Mono<Void> payThirdParty(@RequestBody ThirdPartyPaymentRequest request) {
+        return local.payThirdParty(request);
+    }
+
+    // el error vuelve como problem+json con el motivo en detail, asi la instancia que reenvio lo
+    // devuelve igual que si lo hubiera procesado ella (el body por defecto de Spring no trae el motivo)
+    @ExceptionHandler(ResponseStatusException.class)
+    public ProblemDetail handleStatus(ResponseStatusException ex) {
+        return ProblemDetail.forStatusAndDetail(ex.getStatusCode(), ex.getReason());
+    }
+}
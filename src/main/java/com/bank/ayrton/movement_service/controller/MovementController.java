@@ -3,15 +3,19 @@ package com.bank.ayrton.movement_service.controller;
 import com.bank.ayrton.movement_service.api.movement.MovementService;
 import com.bank.ayrton.movement_service.dto.ThirdPartyPaymentRequest;
 import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/movement")
@@ -19,16 +23,21 @@ import java.time.LocalDate;
 public class MovementController {
 
     private final MovementService service;
+    private final MovementHttpCache httpCache;
 
     @GetMapping
     public Flux<Movement> findAll() {
         return service.findAll();
     }
 
+    // los movimientos no cambian una vez escritos: ETag fuerte del JSON y los ids mas pedidos ya serializados
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<Movement>> findById(@PathVariable String id) {
-        return service.findById(id)
-                .map(ResponseEntity::ok)
+    public Mono<ResponseEntity<byte[]>> findById(@PathVariable String id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return httpCache.findResponse(id, () -> service.findById(id))
+                .map(cached -> httpCache.notModified(ifNoneMatch, cached.etag())
+                        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.etag()).<byte[]>build()
+                        : ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(cached.etag()).body(cached.body()))
                 .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
@@ -52,8 +61,9 @@ public class MovementController {
     }
 
     @GetMapping("/client/{clientId}")
-    public Flux<Movement> findByClientId(@PathVariable String clientId){
-        return service.findByClientId(clientId);
+    public Mono<ResponseEntity<Flux<Movement>>> findByClientId(@PathVariable String clientId,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return conditional(httpCache.clientTag(clientId), ifNoneMatch, () -> service.findByClientId(clientId));
     }
 
     @PostMapping("/transfer")
@@ -64,11 +74,13 @@ public class MovementController {
     }
 
     @GetMapping("/product/{productId}")
-    public Flux<Movement> getMovementsByProductAndDateRange(
+    public Mono<ResponseEntity<Flux<Movement>>> getMovementsByProductAndDateRange(
             @PathVariable String productId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
-        return service.getMovementsByProductAndDateRange(productId, from, to);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditional(httpCache.productTag(productId, from, to), ifNoneMatch,
+                () -> service.getMovementsByProductAndDateRange(productId, from, to));
     }
 
     @PostMapping("/pay-third-party")
@@ -76,4 +88,15 @@ public class MovementController {
         return service.payThirdParty(request)
                 .thenReturn(ResponseEntity.ok("Pago realizado con éxito"));
     }
-}
\ No newline at end of file
+
+    // el watermark se lee antes de consultar Mongo: si entra un movimiento en medio, el ETag queda viejo y la
+    // siguiente peticion condicional recibe la respuesta completa, nunca un 304 con datos de menos
+    private Mono<ResponseEntity<Flux<Movement>>> conditional(Mono<String> etag, String ifNoneMatch,
+                                                             Supplier<Flux<Movement>> movements) {
+        return etag
+                .map(tag -> httpCache.notModified(ifNoneMatch, tag)
+                        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).<Flux<Movement>>build()
+                        : ResponseEntity.ok().eTag(tag).body(movements.get()))
+                .switchIfEmpty(Mono.fromSupplier(() -> ResponseEntity.ok().body(movements.get())));
+    }
+}
@@ -0,0 +1,22 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy;
+import com.bank.ayrton.movement_service.service.reconciliation.ReconciliationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+// conciliacion a pedido: el reporte sale como NDJSON a medida que se encuentran diferencias
+@RestController
+@RequestMapping("/api/v1/movement/admin/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationAdminController {
+
+    private final ReconciliationService reconciliationService;
+
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ReconciliationDiscrepancy> reconcile(@RequestParam(defaultValue = "false") boolean correct) {
+        return reconciliationService.reconcile(correct);
+    }
+}
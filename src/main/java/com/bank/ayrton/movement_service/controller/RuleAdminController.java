@@ -0,0 +1,34 @@
+package com.bank.ayrton.movement_service.controller;
+
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties.RuleDefinition;
+import com.bank.ayrton.movement_service.service.rules.MovementRuleEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+// consulta y recarga en caliente de las reglas de validacion, sin reiniciar el servicio
+@RestController
+@RequestMapping("/api/v1/movement/admin/rules")
+@RequiredArgsConstructor
+public class RuleAdminController {
+
+    private final MovementRuleEngine ruleEngine;
+
+    @GetMapping
+    public List<RuleDefinition> getRules() {
+        return ruleEngine.getDefinitions();
+    }
+
+    @PutMapping
+    public List<RuleDefinition> replaceRules(@RequestBody List<RuleDefinition> rules) {
+        try {
+            ruleEngine.reload(rules);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        return ruleEngine.getDefinitions();
+    }
+}
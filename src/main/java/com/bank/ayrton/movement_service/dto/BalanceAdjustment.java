@@ -0,0 +1,16 @@
+package com.bank.ayrton.movement_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// ajuste de saldo para la actualizacion en lote del MS producto. El reference (id del movimiento)
+// permite al MS producto ignorar un ajuste ya aplicado si el batch se reintenta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceAdjustment {
+    private String productId;
+    private Double amount;      // se suma al saldo (negativo para cargos)
+    private String reference;
+}
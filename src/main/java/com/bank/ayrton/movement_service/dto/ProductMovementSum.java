@@ -0,0 +1,15 @@
+package com.bank.ayrton.movement_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// resultado de la agregacion de conciliacion: efecto neto de los movimientos de un producto sobre su saldo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductMovementSum {
+    private String id;      // productId (el _id del $group)
+    private Double net;
+    private Long movements;
+}
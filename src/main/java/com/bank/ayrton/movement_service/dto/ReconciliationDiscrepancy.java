@@ -0,0 +1,26 @@
+package com.bank.ayrton.movement_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// una linea del reporte de conciliacion
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationDiscrepancy {
+
+    public enum Kind {
+        BALANCE_MISMATCH,   // el saldo del producto no coincide con la suma de sus movimientos
+        UNKNOWN_PRODUCT     // hay movimientos de un producto que el MS producto no devuelve
+    }
+
+    private String productId;
+    private String clientId;
+    private Kind kind;
+    private Double balance;          // null si el producto no existe
+    private Double movementNet;
+    private Long movements;
+    private Double difference;       // balance - movementNet
+    private String correctionId;     // movimiento RECONCILIATION_ADJUSTMENT creado, si se pidio corregir
+}
@@ -0,0 +1,35 @@
+package com.bank.ayrton.movement_service.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// ejecucion de un proceso batch para un periodo. El id (job:periodo) es unico, asi un periodo no se procesa
+// dos veces; phase/lastProductId son el checkpoint desde donde se retoma si la ejecucion se cae
+@Data
+@NoArgsConstructor
+@Document(collection = "batch_runs")
+public class BatchRun {
+    @Id
+    private String id;
+
+    private String job;
+    private String period;            // yyyy-MM
+    private BatchStatus status;
+    private String owner;             // instancia que la esta corriendo
+    private int phase;                // indice del subtipo de producto en proceso
+    private String lastProductId;     // ultimo producto procesado en esa fase (null = desde el inicio)
+    private long processedProducts;
+    private long createdMovements;
+    private Instant startedAt;
+    private Instant heartbeatAt;
+    private Instant finishedAt;
+    private String lastError;
+
+    public static String idOf(String job, String period) {
+        return job + ":" + period;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.ayrton.movement_service.entity;
+
+public enum BatchStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED // se retoma desde el ultimo checkpoint en la siguiente ejecucion
+}
@@ -7,5 +7,8 @@ public enum MovementType {
     PAYMENT, //pago de una deuda credito o tarjeta
     CONSUMPTION, // consumo cargado a una tarjeta de credito.
     THIRD_PARTY_PAYMENT_SENT,  //pago de tercero enviado
-    THIRD_PARTY_PAYMENT_RECEIVED //pago de tercero recibido
+    THIRD_PARTY_PAYMENT_RECEIVED, //pago de tercero recibido
+    MAINTENANCE_FEE, // comision mensual de mantenimiento (cuenta corriente), la genera el batch de fin de mes
+    INTEREST_CHARGE, // interes mensual sobre la deuda de un credito, lo genera el batch de fin de mes
+    RECONCILIATION_ADJUSTMENT // correccion de la conciliacion, monto con signo (no toca el saldo del producto)
 }
\ No newline at end of file
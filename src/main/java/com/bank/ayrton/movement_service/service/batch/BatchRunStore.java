@@ -0,0 +1,28 @@
+package com.bank.ayrton.movement_service.service.batch;
+
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.entity.Movement;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+// persistencia del batch: control de ejecuciones por periodo, checkpoints e insercion idempotente de movimientos
+public interface BatchRunStore {
+
+    // devuelve la ejecucion si esta instancia la tomo: nueva, fallida, o abandonada (sin checkpoint en lease).
+    // vacio si ya se completo o si otra instancia la esta corriendo
+    Mono<BatchRun> claim(String job, String period, String owner, Duration lease);
+
+    // guarda avance y contadores; falla si otra instancia tomo la ejecucion
+    Mono<BatchRun> checkpoint(BatchRun run);
+
+    Mono<BatchRun> complete(BatchRun run);
+
+    Mono<BatchRun> fail(BatchRun run, String error);
+
+    Mono<BatchRun> find(String job, String period);
+
+    // inserta ignorando los ids que ya existen (reintento de una particion); devuelve cuantos se insertaron
+    Mono<Long> insertMovements(List<Movement> movements);
+}
@@ -0,0 +1,142 @@
+package com.bank.ayrton.movement_service.service.batch;
+
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.entity.BatchStatus;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Component
+@RequiredArgsConstructor
+public class MongoBatchRunStore implements BatchRunStore {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final WriteConcern DURABLE = WriteConcern.MAJORITY.withJournal(true);
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MovementHttpCache httpCache;
+
+    @Override
+    public Mono<BatchRun> claim(String job, String period, String owner, Duration lease) {
+        Instant now = Instant.now();
+        BatchRun run = new BatchRun();
+        run.setId(BatchRun.idOf(job, period));
+        run.setJob(job);
+        run.setPeriod(period);
+        run.setStatus(BatchStatus.RUNNING);
+        run.setOwner(owner);
+        run.setStartedAt(now);
+        run.setHeartbeatAt(now);
+
+        // el _id unico hace de candado: solo una instancia crea la ejecucion del periodo
+        return mongoTemplate.insert(run)
+                .onErrorResume(DuplicateKeyException.class, ex -> mongoTemplate.findAndModify(
+                        Query.query(new Criteria().andOperator(
+                                where("_id").is(run.getId()),
+                                new Criteria().orOperator(
+                                        where("status").is(BatchStatus.FAILED),
+                                        where("status").is(BatchStatus.RUNNING).and("heartbeatAt").lt(now.minus(lease))))),
+                        new Update()
+                                .set("status", BatchStatus.RUNNING)
+                                .set("owner", owner)
+                                .set("heartbeatAt", now)
+                                .unset("lastError"),
+                        FindAndModifyOptions.options().returnNew(true),
+                        BatchRun.class));
+    }
+
+    @Override
+    public Mono<BatchRun> checkpoint(BatchRun run) {
+        return updateOwned(run, new Update()
+                .set("phase", run.getPhase())
+                .set("lastProductId", run.getLastProductId())
+                .set("processedProducts", run.getProcessedProducts())
+                .set("createdMovements", run.getCreatedMovements()));
+    }
+
+    @Override
+    public Mono<BatchRun> complete(BatchRun run) {
+        run.setStatus(BatchStatus.COMPLETED);
+        run.setFinishedAt(Instant.now());
+        return updateOwned(run, new Update()
+                .set("status", run.getStatus())
+                .set("finishedAt", run.getFinishedAt())
+                .set("processedProducts", run.getProcessedProducts())
+                .set("createdMovements", run.getCreatedMovements()));
+    }
+
+    @Override
+    public Mono<BatchRun> fail(BatchRun run, String error) {
+        run.setStatus(BatchStatus.FAILED);
+        run.setLastError(error);
+        return updateOwned(run, new Update()
+                .set("status", run.getStatus())
+                .set("lastError", error));
+    }
+
+    @Override
+    public Mono<BatchRun> find(String job, String period) {
+        return mongoTemplate.findById(BatchRun.idOf(job, period), BatchRun.class);
+    }
+
+    @Override
+    public Mono<Long> insertMovements(List<Movement> movements) {
+        List<Document> documents = new ArrayList<>(movements.size());
+        for (Movement movement : movements) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(movement, document);
+            documents.add(document);
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Movement.class))
+                .flatMap(collection -> Mono.from(collection.withWriteConcern(DURABLE).insertMany(documents, UNORDERED)))
+                .map(result -> (long) result.getInsertedIds().size())
+                .onErrorResume(MongoBulkWriteException.class, ex -> {
+                    // ids deterministas: un duplicado es un movimiento que ya se grabo en un intento anterior
+                    for (BulkWriteError error : ex.getWriteErrors()) {
+                        if (error.getCode() != DUPLICATE_KEY) {
+                            return Mono.error(ex);
+                        }
+                    }
+                    if (ex.getWriteConcernError() != null) {
+                        return Mono.error(ex);
+                    }
+                    return Mono.just((long) (documents.size() - ex.getWriteErrors().size()));
+                })
+                .flatMap(inserted -> httpCache.onWritten(movements).thenReturn(inserted));
+    }
+
+    private Mono<BatchRun> updateOwned(BatchRun run, Update update) {
+        run.setHeartbeatAt(Instant.now());
+        return mongoTemplate.updateFirst(
+                        Query.query(where("_id").is(run.getId()).and("owner").is(run.getOwner())),
+                        update.set("heartbeatAt", run.getHeartbeatAt()),
+                        BatchRun.class)
+                .flatMap(result -> result.getMatchedCount() == 0
+                        ? Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                "La ejecucion " + run.getId() + " la tomo otra instancia"))
+                        : Mono.just(run));
+    }
+}
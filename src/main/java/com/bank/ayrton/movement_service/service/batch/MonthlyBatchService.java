@@ -0,0 +1,214 @@
+package com.bank.ayrton.movement_service.service.batch;
+
+import com.bank.ayrton.movement_service.config.BatchProperties;
+import com.bank.ayrton.movement_service.dto.BalanceAdjustment;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// batch de fin de mes: cobra la comision de mantenimiento de las cuentas corrientes y el interes de la deuda
+// de los creditos. Recorre los productos de cada subtipo por id (keyset), cada pagina se parte en particiones
+// que se procesan en paralelo (insertMany de movimientos + un ajuste de saldos en lote) y al terminar la pagina
+// se guarda como checkpoint el ultimo id. Los ids de movimiento son deterministas (tipo-periodo-producto), asi
+// reprocesar una pagina despues de una caida no duplica cargos
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MonthlyBatchService {
+
+    public static final String JOB = "MONTHLY_FEES_INTEREST";
+    // orden fijo: el checkpoint guarda el indice de la fase
+    public static final List<ProductSubtype> PHASES = List.of(
+            ProductSubtype.CURRENT_ACCOUNT,
+            ProductSubtype.PERSONAL_CREDIT,
+            ProductSubtype.BUSINESS_CREDIT,
+            ProductSubtype.CREDIT_CARD);
+    private static final String OWNER = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+
+    private final BatchProperties properties;
+    private final ProductBatchClient productClient;
+    private final BatchRunStore store;
+
+    // el 1ro de cada mes procesa el mes anterior; si hay varias instancias solo una toma la ejecucion
+    @Scheduled(cron = "${movement.batch.cron:0 0 2 1 * *}")
+    public void runMonthly() {
+        if (properties.isEnabled()) {
+            start(YearMonth.now().minusMonths(1));
+        }
+    }
+
+    // lanza el batch en segundo plano (scheduler y endpoint admin)
+    public void start(YearMonth period) {
+        run(period).subscribe(
+                run -> log.info("Batch {} {}: estado {}, {} productos, {} movimientos",
+                        JOB, period, run.getStatus(), run.getProcessedProducts(), run.getCreatedMovements()),
+                ex -> log.error("Batch {} {} fallo: {}", JOB, period, ex.getMessage()));
+    }
+
+    // ejecuta (o retoma) el periodo. Si ya se completo o lo corre otra instancia devuelve el estado actual
+    public Mono<BatchRun> run(YearMonth period) {
+        String key = period.toString();
+        return store.claim(JOB, key, OWNER, properties.getLease())
+                .flatMap(run -> execute(run, period))
+                .switchIfEmpty(Mono.defer(() -> store.find(JOB, key)));
+    }
+
+    public Mono<BatchRun> status(YearMonth period) {
+        return store.find(JOB, period.toString());
+    }
+
+    private Mono<BatchRun> execute(BatchRun run, YearMonth period) {
+        Progress progress = new Progress(run.getProcessedProducts());
+        log.info("Batch {} {}: inicia en fase {} despues del producto {}", JOB, period, PHASES.get(run.getPhase()),
+                run.getLastProductId());
+        return Flux.range(run.getPhase(), PHASES.size() - run.getPhase())
+                .concatMap(phase -> processPhase(run, period, phase, progress))
+                .then(Mono.defer(() -> store.complete(run)))
+                .onErrorResume(ex -> store.fail(run, String.valueOf(ex.getMessage()))
+                        .onErrorResume(failError -> Mono.empty())
+                        .then(Mono.error(ex)));
+    }
+
+    private Flux<Integer> processPhase(BatchRun run, YearMonth period, int phase, Progress progress) {
+        ProductSubtype subtype = PHASES.get(phase);
+        if (subtype != ProductSubtype.CURRENT_ACCOUNT && properties.getMonthlyInterestRates().get(subtype) == null) {
+            return Flux.empty(); // subtipo sin tasa configurada
+        }
+        // solo la fase donde quedo el checkpoint arranca a mitad; las siguientes empiezan desde el primer producto
+        String startAfter = phase == run.getPhase() ? run.getLastProductId() : null;
+
+        // expand pide la pagina siguiente recien cuando la actual guardo su checkpoint
+        return processPageAfter(run, period, phase, startAfter, progress)
+                .expand(page -> page.isLast() ? Mono.empty()
+                        : processPageAfter(run, period, phase, page.lastProductId(), progress))
+                .map(PageResult::size);
+    }
+
+    private Mono<PageResult> processPageAfter(BatchRun run, YearMonth period, int phase, String afterId, Progress progress) {
+        ProductSubtype subtype = PHASES.get(phase);
+        int pageSize = properties.getPageSize();
+        return productClient.fetchPageAfter(subtype, afterId, pageSize)
+                .collectList()
+                .flatMap(products -> {
+                    if (products.isEmpty()) {
+                        return Mono.just(new PageResult(afterId, 0, true));
+                    }
+                    String lastId = products.get(products.size() - 1).getId();
+                    return processPage(products, subtype, period)
+                            .flatMap(created -> {
+                                run.setPhase(phase);
+                                run.setLastProductId(lastId);
+                                run.setProcessedProducts(run.getProcessedProducts() + products.size());
+                                run.setCreatedMovements(run.getCreatedMovements() + created);
+                                return store.checkpoint(run);
+                            })
+                            .doOnNext(saved -> progress.report(saved, subtype, lastId))
+                            .thenReturn(new PageResult(lastId, products.size(), products.size() < pageSize));
+                });
+    }
+
+    private Mono<Long> processPage(List<ProductDto> products, ProductSubtype subtype, YearMonth period) {
+        List<Movement> movements = new ArrayList<>(products.size());
+        int foreign = 0;
+        for (ProductDto product : products) {
+            // no se confia en el filtro del listado: un producto de otro subtipo no lleva comision ni interes de esta fase
+            if (product.getSubtype() != subtype) {
+                foreign++;
+                continue;
+            }
+            Movement charge = chargeFor(product, subtype, period);
+            if (charge != null) {
+                movements.add(charge);
+            }
+        }
+        if (foreign > 0) {
+            log.warn("Batch {} {}: {} productos de la pagina de {} son de otro subtipo, se omiten", JOB, period, foreign, subtype);
+        }
+        // se cuentan los cargos de la pagina y no solo los insertados ahora: al reprocesar la pagina de la caida
+        // parte de sus movimientos ya existe y no se sumaron al contador (el checkpoint no llego a guardarse)
+        long charges = movements.size();
+        return Flux.fromIterable(movements)
+                .buffer(properties.getChunkSize())
+                .flatMap(this::writePartition, properties.getParallelism())
+                .reduce(0L, Long::sum)
+                .doOnNext(inserted -> {
+                    if (inserted < charges) {
+                        log.info("Batch {} {}: {} de {} movimientos ya existian (pagina reprocesada)",
+                                JOB, period, charges - inserted, charges);
+                    }
+                })
+                .thenReturn(charges);
+    }
+
+    // primero los movimientos y despues los saldos: si se cae en medio, el reintento no duplica movimientos
+    // y el MS producto descarta los ajustes cuya referencia ya aplico
+    private Mono<Long> writePartition(List<Movement> partition) {
+        List<BalanceAdjustment> adjustments = new ArrayList<>(partition.size());
+        for (Movement movement : partition) {
+            adjustments.add(new BalanceAdjustment(movement.getProductId(), -movement.getAmount(), movement.getId()));
+        }
+        return store.insertMovements(partition)
+                .flatMap(inserted -> productClient.adjustBalances(adjustments).thenReturn(inserted));
+    }
+
+    Movement chargeFor(ProductDto product, ProductSubtype subtype, YearMonth period) {
+        MovementType type;
+        double amount;
+        if (subtype == ProductSubtype.CURRENT_ACCOUNT) {
+            type = MovementType.MAINTENANCE_FEE;
+            amount = product.getMaintenanceFee() == null ? 0 : product.getMaintenanceFee();
+        } else {
+            // saldo negativo = deuda del credito
+            type = MovementType.INTEREST_CHARGE;
+            double debt = product.getBalance() == null ? 0 : -product.getBalance();
+            amount = debt * properties.getMonthlyInterestRates().get(subtype);
+        }
+        amount = BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        if (amount <= 0) {
+            return null;
+        }
+        return new Movement(
+                type + "-" + period + "-" + product.getId(),
+                product.getClientId(),
+                product.getId(),
+                type,
+                amount,
+                period.atEndOfMonth().atTime(LocalTime.of(23, 59, 59)));
+    }
+
+    private record PageResult(String lastProductId, int size, boolean isLast) {
+    }
+
+    // avance y throughput de esta instancia (productos por segundo desde que tomo la ejecucion)
+    private static final class Progress {
+        private final long startNanos = System.nanoTime();
+        private final long startProducts;
+
+        Progress(long startProducts) {
+            this.startProducts = startProducts;
+        }
+
+        void report(BatchRun run, ProductSubtype subtype, String lastProductId) {
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 0.001);
+            log.info("Batch {} {}: {} hasta {} - {} productos, {} movimientos, {} productos/s",
+                    JOB, run.getPeriod(), subtype, lastProductId, run.getProcessedProducts(), run.getCreatedMovements(),
+                    Math.round((run.getProcessedProducts() - startProducts) / seconds));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.ayrton.movement_service.service.batch;
+
+import com.bank.ayrton.movement_service.dto.BalanceAdjustment;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+// llamadas al MS producto de los procesos batch: listados paginados y ajuste de saldos en lote
+@Component
+public class ProductBatchClient {
+
+    private final WebClient productWebClient;
+
+    public ProductBatchClient(WebClient productWebClient) {
+        this.productWebClient = productWebClient;
+    }
+
+    // keyset: productos ordenados por id (mismo orden que el _id de Mongo) y con id mayor a afterId (null = desde
+    // el primero); subtype null = todos. A diferencia de page/size no se corre si se crean o borran productos
+    // mientras corre el batch o la conciliacion. Pagina vacia (o incompleta) = no hay mas productos
+    public Flux<ProductDto> fetchPageAfter(ProductSubtype subtype, String afterId, int size) {
+        return productWebClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/product")
+                        .queryParamIfPresent("subtype", Optional.ofNullable(subtype))
+                        .queryParam("sort", "id")
+                        .queryParamIfPresent("afterId", Optional.ofNullable(afterId))
+                        .queryParam("size", size)
+                        .build())
+                .retrieve()
+                .bodyToFlux(ProductDto.class);
+    }
+
+    // un producto por id; vacio si no existe
+    public Mono<ProductDto> fetchProduct(String id) {
+        return productWebClient.get()
+                .uri("/api/v1/product/{id}", id)
+                .retrieve()
+                .bodyToMono(ProductDto.class);
+    }
+
+    // el MS producto suma cada amount al saldo e ignora las referencias que ya aplico
+    public Mono<Void> adjustBalances(List<BalanceAdjustment> adjustments) {
+        return productWebClient.post()
+                .uri("/api/v1/product/balances/adjust")
+                .bodyValue(adjustments)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+}
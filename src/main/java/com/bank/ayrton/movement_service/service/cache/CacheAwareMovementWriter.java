@@ -0,0 +1,36 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.entity.Movement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// mueve los watermarks de producto y cliente cuando el insert ya quedo confirmado en Mongo. Si falla tambien se
+// mueven: con el writer por lotes parte de los movimientos pudo quedar escrita, e invalidar de mas no cuesta un 304 viejo
+public class CacheAwareMovementWriter implements MovementWriter {
+
+    private final MovementWriter delegate;
+    private final MovementHttpCache httpCache;
+
+    public CacheAwareMovementWriter(MovementWriter delegate, MovementHttpCache httpCache) {
+        this.delegate = delegate;
+        this.httpCache = httpCache;
+    }
+
+    @Override
+    public Mono<Movement> insert(Movement movement) {
+        return delegate.insert(movement)
+                .flatMap(saved -> httpCache.onWritten(saved).thenReturn(saved))
+                .onErrorResume(ex -> httpCache.onWritten(movement).then(Mono.error(ex)));
+    }
+
+    @Override
+    public Flux<Movement> insertAll(List<Movement> movements) {
+        return delegate.insertAll(movements)
+                .collectList()
+                .flatMapMany(saved -> httpCache.onWritten(saved).thenMany(Flux.fromIterable(saved)))
+                .onErrorResume(ex -> httpCache.onWritten(movements).thenMany(Flux.error(ex)));
+    }
+}
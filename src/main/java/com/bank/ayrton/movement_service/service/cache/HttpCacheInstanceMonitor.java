@@ -0,0 +1,58 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import com.bank.ayrton.movement_service.config.HttpCacheProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// con backend local la cache solo es correcta si hay una instancia. Fuera del modo cluster no se puede saber al
+// arrancar (las demas se registran despues), asi que la cache arranca suspendida y se revisa el registro de Eureka
+// al quedar lista la aplicacion y en cada heartbeat
+@Component
+public class HttpCacheInstanceMonitor {
+
+    private final boolean local;
+    private final MovementHttpCache httpCache;
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final String serviceId;
+
+    public HttpCacheInstanceMonitor(HttpCacheProperties properties, MovementHttpCache httpCache,
+                                    ObjectProvider<DiscoveryClient> discoveryClient,
+                                    ObjectProvider<Registration> registration,
+                                    @Value("${spring.application.name}") String serviceId) {
+        this.local = properties.isEnabled() && properties.getBackend() == HttpCacheProperties.Backend.LOCAL;
+        this.httpCache = httpCache;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.serviceId = serviceId;
+        // sin registro de servicios (o con redis) no hay nada que esperar
+        if (local && discoveryClient.getIfAvailable() != null) {
+            httpCache.awaitInstanceCheck();
+        }
+    }
+
+    @EventListener({ApplicationReadyEvent.class, HeartbeatEvent.class})
+    public void checkInstances() {
+        DiscoveryClient client = discoveryClient.getIfAvailable();
+        if (!local || client == null) {
+            return;
+        }
+        // esta instancia puede no figurar todavia en el registro: se cuentan las demas y se suma una
+        Registration self = registration.getIfAvailable();
+        String selfId = self == null ? null : self.getInstanceId();
+        List<ServiceInstance> instances = client.getInstances(serviceId);
+        long others = instances.stream()
+                .filter(instance -> selfId == null || !selfId.equals(instance.getInstanceId()))
+                .count();
+        httpCache.onInstances((int) others + 1);
+    }
+}
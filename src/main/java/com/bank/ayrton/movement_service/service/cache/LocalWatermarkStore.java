@@ -0,0 +1,53 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// contadores por slot (hash de la clave): memoria fija sin importar cuantos productos o clientes haya.
+// Dos claves en el mismo slot se invalidan juntas, eso solo cuesta una respuesta completa de mas, nunca un 304 de mas.
+// El epoch cambia en cada arranque para que un ETag viejo no coincida con un contador que volvio a 0, y con rotate()
+// cuando los contadores dejaron de ser confiables (escrituras que tomaron otras instancias)
+public class LocalWatermarkStore implements WatermarkStore {
+
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private volatile String epoch = newEpoch();
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    public LocalWatermarkStore(int slots) {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public Mono<String> current(String key) {
+        return Mono.just(epoch + "." + slots.get(slot(key)));
+    }
+
+    @Override
+    public Mono<Void> bump(Collection<String> keys) {
+        for (String key : keys) {
+            slots.incrementAndGet(slot(key));
+        }
+        return Mono.empty();
+    }
+
+    // invalida de una vez todos los watermarks entregados hasta ahora
+    public void rotate() {
+        epoch = newEpoch();
+    }
+
+    private static String newEpoch() {
+        return Long.toString(System.currentTimeMillis(), 36) + "-" + GENERATION.incrementAndGet();
+    }
+
+    private int slot(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,279 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import com.bank.ayrton.movement_service.config.HttpCacheProperties;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// cache HTTP de las lecturas de movimientos:
+// - GET por id: ETag fuerte (md5 del JSON) y las respuestas ya serializadas de los ids mas pedidos. Cada respuesta
+//   guarda el watermark del id leido antes de ir a Mongo y solo se sirve mientras siga igual: una carga que empezo
+//   antes de un PUT/DELETE nunca se devuelve despues, y con backend redis tampoco la de un PUT en otra instancia
+// - historial por cliente y rango por producto: ETag armado con el watermark de la clave, que cambia en cada
+//   escritura; asi un If-None-Match se contesta con 304 sin consultar Mongo
+@Slf4j
+@Component
+public class MovementHttpCache {
+
+    private final boolean enabled;
+    private final LocalWatermarkStore localWatermarks; // null con backend redis
+    private final WatermarkStore watermarks;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, CachedResponse> responses;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder watermarkFailures = new LongAdder();
+    private final Set<String> pendingBumps = ConcurrentHashMap.newKeySet();
+    // backend local con otras instancias registradas: sus escrituras no mueven estos watermarks, se deja de cachear
+    private volatile boolean suspended;
+
+    @Autowired
+    public MovementHttpCache(HttpCacheProperties properties, ClusterProperties clusterProperties,
+                             ReactiveStringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this(properties, redisTemplate, objectMapper);
+        checkClusterMode(properties, clusterProperties);
+    }
+
+    public MovementHttpCache(HttpCacheProperties properties, ReactiveStringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.enabled = properties.isEnabled();
+        this.localWatermarks = properties.getBackend() == HttpCacheProperties.Backend.LOCAL
+                ? new LocalWatermarkStore(properties.getWatermarkSlots())
+                : null;
+        this.watermarks = localWatermarks != null ? localWatermarks : new RedisWatermarkStore(redisTemplate);
+        this.objectMapper = objectMapper;
+        this.maxEntries = properties.isEnabled() ? properties.getResponseCacheSize() : 0;
+        this.ttlNanos = properties.getResponseCacheTtl().toNanos();
+        // LRU por orden de acceso; pocas entradas y operaciones cortas, alcanza con sincronizar
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        log.info("Cache HTTP de movimientos {} con watermarks {} y {} respuestas en memoria",
+                enabled ? "activa" : "inactiva", properties.getBackend(), maxEntries);
+    }
+
+    // respuesta serializada del movimiento; solo llama al loader (Mongo) si el id no esta en cache o cambio
+    public Mono<CachedResponse> findResponse(String id, Supplier<Mono<Movement>> loader) {
+        if (maxEntries <= 0) {
+            misses.increment();
+            return loader.get().map(movement -> serialize(movement, null));
+        }
+        // sin watermark (backend caido) se responde desde Mongo sin guardar nada
+        return tag("m:" + id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(watermark -> {
+                    CachedResponse cached = watermark.map(current -> cachedResponse(id, current)).orElse(null);
+                    if (cached != null) {
+                        hits.increment();
+                        return Mono.just(cached);
+                    }
+                    misses.increment();
+                    return loader.get().map(movement -> {
+                        CachedResponse response = serialize(movement, watermark.orElse(null));
+                        if (watermark.isPresent()) {
+                            synchronized (responses) {
+                                responses.put(id, response);
+                            }
+                        }
+                        return response;
+                    });
+                });
+    }
+
+    // vacio si la cache esta desactivada o el backend no responde: la peticion sigue sin ETag
+    public Mono<String> productTag(String productId, LocalDate from, LocalDate to) {
+        return tag("p:" + productId).map(watermark -> "\"p" + watermark + ":" + from + ":" + to + "\"");
+    }
+
+    public Mono<String> clientTag(String clientId) {
+        return tag("c:" + clientId).map(watermark -> "\"c" + watermark + "\"");
+    }
+
+    // If-None-Match con comparacion debil (RFC 9110): "*", lista separada por comas y prefijo W/
+    public boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                notModified.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // se llama despues de que la escritura quedo en Mongo. Si el backend falla la escritura igual queda (no se
+    // puede deshacer por la cache): las claves quedan pendientes, sin ETag en esta instancia, hasta que el reintento
+    // programado las mueva. El contador watermarkFailures de stats() avisa que paso
+    public Mono<Void> onWritten(Collection<Movement> movements) {
+        if (!enabled || movements.isEmpty()) {
+            return Mono.empty();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (Movement movement : movements) {
+            if (movement.getProductId() != null) {
+                keys.add("p:" + movement.getProductId());
+            }
+            if (movement.getClientId() != null) {
+                keys.add("c:" + movement.getClientId());
+            }
+            if (movement.getId() != null) {
+                keys.add("m:" + movement.getId());
+                synchronized (responses) {
+                    responses.remove(movement.getId());
+                }
+            }
+        }
+        return bump(keys);
+    }
+
+    @Scheduled(fixedDelayString = "${movement.http-cache.retry-interval:PT5S}")
+    public void retryFailedBumps() {
+        if (pendingBumps.isEmpty()) {
+            return;
+        }
+        bump(new LinkedHashSet<>(pendingBumps)).subscribe();
+    }
+
+    public Mono<Void> onWritten(Movement... movements) {
+        return onWritten(List.of(movements));
+    }
+
+    // en modo cluster cada producto se escribe en su instancia duena y se lee en cualquiera: con watermarks
+    // locales las demas contestarian 304 con datos viejos
+    public static void checkClusterMode(HttpCacheProperties properties, ClusterProperties clusterProperties) {
+        if (clusterProperties.isEnabled() && properties.isEnabled()
+                && properties.getBackend() == HttpCacheProperties.Backend.LOCAL) {
+            throw new IllegalStateException("El modo cluster necesita movement.http-cache.backend=redis "
+                    + "(o movement.http-cache.enabled=false); con backend local cada instancia solo ve sus escrituras");
+        }
+    }
+
+    // cantidad de instancias registradas del servicio. Con backend local y mas de una se dejan de emitir ETag de
+    // rango y de guardar respuestas hasta que vuelva a quedar una sola (el ETag md5 del GET por id sigue, es del cuerpo).
+    // Al volver se rota el epoch: las escrituras que tomaron las otras instancias no movieron estos contadores
+    public void onInstances(int instances) {
+        if (!enabled || localWatermarks == null) {
+            return;
+        }
+        boolean replicated = instances > 1;
+        if (replicated != suspended) {
+            synchronized (responses) {
+                responses.clear();
+            }
+            if (replicated) {
+                suspended = true;
+                log.error("Cache HTTP con backend local y {} instancias registradas: se suspende hasta volver a una. "
+                        + "Configurar movement.http-cache.backend=redis", instances);
+            } else {
+                localWatermarks.rotate();
+                suspended = false;
+                log.info("Cache HTTP local reactivada con un epoch nuevo: una sola instancia registrada");
+            }
+        }
+    }
+
+    // con registro de servicios no se sabe si hay otras instancias hasta la primera consulta: mientras tanto
+    // no se emiten ETag que despues podrian coincidir con datos viejos
+    public void awaitInstanceCheck() {
+        if (enabled && localWatermarks != null) {
+            suspended = true;
+        }
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        int entries;
+        synchronized (responses) {
+            entries = responses.size();
+        }
+        return new Stats(hitCount, misses.sum(), notModified.sum(), total == 0 ? 0 : (double) hitCount / total, entries,
+                watermarkFailures.sum(), pendingBumps.size());
+    }
+
+    private Mono<Void> bump(Set<String> keys) {
+        return watermarks.bump(keys)
+                .doOnSuccess(ignored -> pendingBumps.removeAll(keys))
+                .onErrorResume(ex -> {
+                    pendingBumps.addAll(keys);
+                    watermarkFailures.increment();
+                    log.error("No se pudo actualizar el watermark de {} ({} claves pendientes de reintento): {}",
+                            keys, pendingBumps.size(), ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> tag(String key) {
+        // clave con un bump pendiente: su watermark no refleja la ultima escritura
+        if (!enabled || suspended || pendingBumps.contains(key)) {
+            return Mono.empty();
+        }
+        return watermarks.current(key)
+                .onErrorResume(ex -> {
+                    log.warn("Watermark de {} no disponible, respuesta sin ETag: {}", key, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private CachedResponse cachedResponse(String id, String watermark) {
+        synchronized (responses) {
+            CachedResponse cached = responses.get(id);
+            if (cached != null && (!watermark.equals(cached.watermark())
+                    || System.nanoTime() - cached.createdAtNanos() > ttlNanos)) {
+                responses.remove(id);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private CachedResponse serialize(Movement movement, String watermark) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(movement);
+            return new CachedResponse("\"" + DigestUtils.md5DigestAsHex(body) + "\"", body, watermark, System.nanoTime());
+        } catch (JsonProcessingException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "No se pudo serializar el movimiento", ex);
+        }
+    }
+
+    public record CachedResponse(String etag, byte[] body, String watermark, long createdAtNanos) {
+    }
+
+    public record Stats(long responseHits, long responseMisses, long notModified, double hitRatio, int entries,
+                        long watermarkFailures, int pendingBumps) {
+    }
+}
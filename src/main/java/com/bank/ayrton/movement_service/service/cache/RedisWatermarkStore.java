@@ -0,0 +1,49 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// watermarks compartidos entre instancias: cada escritura guarda un token nuevo en watermark:<clave>.
+// Si la clave no existe (nunca escrita o Redis vaciado) se crea un token al leer, asi nunca se repite uno viejo
+public class RedisWatermarkStore implements WatermarkStore {
+
+    private static final String KEY_PREFIX = "watermark:";
+
+    // KEYS[1] = clave; ARGV[1] = token a usar si no existe
+    private static final RedisScript<String> CURRENT = RedisScript.of("""
+            local token = redis.call('GET', KEYS[1])
+            if not token then
+              token = ARGV[1]
+              redis.call('SET', KEYS[1], token)
+            end
+            return token
+            """, String.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RedisWatermarkStore(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Mono<String> current(String key) {
+        return redisTemplate.execute(CURRENT, List.of(KEY_PREFIX + key), List.of(newToken())).next();
+    }
+
+    @Override
+    public Mono<Void> bump(Collection<String> keys) {
+        return Flux.fromIterable(keys)
+                .flatMap(key -> redisTemplate.opsForValue().set(KEY_PREFIX + key, newToken()))
+                .then();
+    }
+
+    private static String newToken() {
+        return Long.toString(System.currentTimeMillis(), 36) + Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bank.ayrton.movement_service.service.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// marca de agua por clave (producto o cliente): cambia cada vez que se escribe un movimiento de esa clave
+public interface WatermarkStore {
+
+    Mono<String> current(String key);
+
+    Mono<Void> bump(Collection<String> keys);
+}
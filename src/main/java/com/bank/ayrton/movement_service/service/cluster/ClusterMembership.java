@@ -0,0 +1,118 @@
+package com.bank.ayrton.movement_service.service.cluster;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// mantiene el anillo de instancias de movement-service, desde Eureka o desde una lista fija.
+// Se recalcula periodicamente y en cada heartbeat de Eureka, asi la propiedad de los productos
+// se mueve sola al escalar hacia arriba o hacia abajo
+@Slf4j
+@Component
+public class ClusterMembership {
+
+    private final ClusterProperties properties;
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final String serviceId;
+
+    private volatile ConsistentHashRing ring;
+    private volatile String self;
+
+    public ClusterMembership(ClusterProperties properties,
+                             ObjectProvider<DiscoveryClient> discoveryClient,
+                             ObjectProvider<Registration> registration,
+                             @Value("${spring.application.name}") String serviceId) {
+        this.properties = properties;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.serviceId = serviceId;
+        if (properties.isEnabled()) {
+            if (!StringUtils.hasText(properties.getSecret())) {
+                throw new IllegalStateException("movement.cluster.secret es obligatorio con el modo cluster activo");
+            }
+            refresh();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // url base de la instancia duena del producto
+    public String ownerOf(String productId) {
+        return ring.ownerOf(productId);
+    }
+
+    public boolean isSelf(String member) {
+        return member == null || member.equals(self);
+    }
+
+    public List<String> getMembers() {
+        return ring.getMembers();
+    }
+
+    @EventListener(HeartbeatEvent.class)
+    public void onHeartbeat() {
+        if (properties.isEnabled() && properties.getDiscovery() == ClusterProperties.Discovery.EUREKA) {
+            refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${movement.cluster.refresh-interval:PT10S}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String currentSelf = resolveSelf();
+        Set<String> members = new LinkedHashSet<>();
+        if (properties.getDiscovery() == ClusterProperties.Discovery.STATIC) {
+            properties.getMembers().forEach(member -> members.add(normalize(member)));
+        } else {
+            DiscoveryClient client = discoveryClient.getIfAvailable();
+            if (client != null) {
+                for (ServiceInstance instance : client.getInstances(serviceId)) {
+                    members.add(normalize(instance.getUri().toString()));
+                }
+            }
+        }
+        // esta instancia siempre esta en el anillo, aunque todavia no aparezca en el registro
+        members.add(currentSelf);
+
+        ConsistentHashRing previous = ring;
+        if (previous == null || !previous.getMembers().equals(List.copyOf(new TreeSet<>(members)))) {
+            ring = ConsistentHashRing.of(members, properties.getVirtualNodes());
+            log.info("Anillo del cluster actualizado: {} (esta instancia: {})", ring.getMembers(), currentSelf);
+        }
+        self = currentSelf;
+    }
+
+    private String resolveSelf() {
+        if (properties.getSelfUrl() != null) {
+            return normalize(properties.getSelfUrl());
+        }
+        Registration current = registration.getIfAvailable();
+        if (current != null) {
+            return normalize(current.getUri().toString());
+        }
+        throw new IllegalStateException("movement.cluster.self-url es obligatorio sin registro en Eureka");
+    }
+
+    private static String normalize(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
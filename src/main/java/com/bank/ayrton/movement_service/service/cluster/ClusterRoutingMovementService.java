@@ -0,0 +1,134 @@
+package com.bank.ayrton.movement_service.service.cluster;
+
+import com.bank.ayrton.movement_service.api.movement.MovementService;
+import com.bank.ayrton.movement_service.dto.ThirdPartyPaymentRequest;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.service.movement.MovementServiceImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// punto de entrada de MovementService para el controller y los listeners de kafka. Con el modo cluster
+// activo, las operaciones que modifican un producto se ejecutan en la instancia duena de ese producto
+// (las transferencias y pagos, en la duena del producto origen); las lecturas van directo a Mongo
+@Slf4j
+@Primary
+@Service
+@RequiredArgsConstructor
+public class ClusterRoutingMovementService implements MovementService {
+
+    public static final String INTERNAL_PATH = "/internal/v1/movement";
+
+    private final MovementServiceImpl local;
+    private final ClusterMembership membership;
+    private final WebClient clusterWebClient;
+
+    @Override
+    public Flux<Movement> findAll() {
+        return local.findAll();
+    }
+
+    @Override
+    public Mono<Movement> findById(String id) {
+        return local.findById(id);
+    }
+
+    @Override
+    public Mono<Movement> save(Movement movement) {
+        return route(movement.getProductId(), () -> local.save(movement), owner -> clusterWebClient.post()
+                .uri(owner + INTERNAL_PATH)
+                .bodyValue(movement)
+                .retrieve()
+                .bodyToMono(Movement.class));
+    }
+
+    @Override
+    public Mono<Movement> update(String id, Movement movement) {
+        return local.update(id, movement);
+    }
+
+    @Override
+    public Mono<Void> delete(String id) {
+        return local.delete(id);
+    }
+
+    @Override
+    public Flux<Movement> findByClientId(String clientId) {
+        return local.findByClientId(clientId);
+    }
+
+    @Override
+    public Mono<Void> transfer(String fromProductId, String toProductId, Double amount) {
+        return route(fromProductId, () -> local.transfer(fromProductId, toProductId, amount), owner -> clusterWebClient.post()
+                .uri(owner + INTERNAL_PATH + "/transfer?fromProductId={from}&toProductId={to}&amount={amount}",
+                        fromProductId, toProductId, amount)
+                .retrieve()
+                .bodyToMono(Void.class));
+    }
+
+    @Override
+    public Flux<Movement> getMovementsByProductAndDateRange(String productId, LocalDate from, LocalDate to) {
+        return local.getMovementsByProductAndDateRange(productId, from, to);
+    }
+
+    @Override
+    public Mono<Void> payThirdParty(ThirdPartyPaymentRequest request) {
+        return route(request.getFromProductId(), () -> local.payThirdParty(request), owner -> clusterWebClient.post()
+                .uri(owner + INTERNAL_PATH + "/pay-third-party")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(Void.class));
+    }
+
+    private <T> Mono<T> route(String productId, Supplier<Mono<T>> localCall, Function<String, Mono<T>> remoteCall) {
+        if (!membership.isEnabled() || productId == null) {
+            return localCall.get();
+        }
+        String owner = membership.ownerOf(productId);
+        if (membership.isSelf(owner)) {
+            return localCall.get();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Producto {} pertenece a {}, reenviando", productId, owner);
+        }
+        return remoteCall.apply(owner)
+                // se devuelve el mismo error que dio la instancia duena
+                .onErrorMap(WebClientResponseException.class,
+                        ex -> new ResponseStatusException(ex.getStatusCode(), reasonOf(ex), ex))
+                // no se procesa aca si el dueno no responde: podria haber recibido la peticion y se duplicaria.
+                // El cliente reintenta y el anillo se corrige cuando Eureka saca a la instancia caida
+                .onErrorMap(WebClientRequestException.class, ex -> {
+                    log.warn("Instancia {} duena del producto {} no responde: {}", owner, productId, ex.getMessage());
+                    return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Instancia duena del producto no disponible, reintente", ex);
+                });
+    }
+
+    // la instancia duena responde problem+json (InternalMovementController); si el body no se puede leer
+    // (ej. 401 del filtro, que no trae body) queda el texto del status
+    private static String reasonOf(WebClientResponseException ex) {
+        try {
+            ProblemDetail problem = ex.getResponseBodyAs(ProblemDetail.class);
+            if (problem != null && problem.getDetail() != null) {
+                return problem.getDetail();
+            }
+        } catch (RuntimeException ignored) {
+            // body vacio o en otro formato
+        }
+        return ex.getStatusText();
+    }
+}
@@ -0,0 +1,56 @@
+package com.bank.ayrton.movement_service.service.cluster;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// la ruta interna del modo cluster procesa movimientos sin volver a rutear: solo la pueden llamar otras
+// instancias, que mandan el secreto compartido (movement.cluster.secret). Sin modo cluster la ruta no existe
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // despues del correlation id, asi el rechazo queda con su id en el log
+public class ClusterSecretWebFilter implements WebFilter {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private final boolean enabled;
+    private final byte[] secret;
+
+    public ClusterSecretWebFilter(ClusterProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.secret = properties.getSecret() != null ? properties.getSecret().getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith(ClusterRoutingMovementService.INTERNAL_PATH)) {
+            return chain.filter(exchange);
+        }
+        if (!enabled) {
+            return reject(exchange, HttpStatus.NOT_FOUND);
+        }
+        String provided = exchange.getRequest().getHeaders().getFirst(SECRET_HEADER);
+        // comparacion en tiempo constante; sin secreto configurado no pasa nadie
+        if (secret.length == 0 || provided == null
+                || !MessageDigest.isEqual(secret, provided.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Peticion a la ruta interna rechazada desde {}", exchange.getRequest().getRemoteAddress());
+            return reject(exchange, HttpStatus.UNAUTHORIZED);
+        }
+        return chain.filter(exchange);
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        return exchange.getResponse().setComplete();
+    }
+}
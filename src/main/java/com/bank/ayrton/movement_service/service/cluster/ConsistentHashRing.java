@@ -0,0 +1,76 @@
+package com.bank.ayrton.movement_service.service.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// anillo de hash consistente inmutable: cada miembro pone virtualNodes puntos en el anillo y una clave
+// pertenece al primer punto igual o mayor a su hash. Al entrar o salir un miembro solo cambian de dueno
+// las claves de sus puntos. Dos instancias con la misma lista de miembros calculan el mismo dueno
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> members;
+
+    private ConsistentHashRing(long[] points, String[] owners, List<String> members) {
+        this.points = points;
+        this.owners = owners;
+        this.members = members;
+    }
+
+    public static ConsistentHashRing of(Collection<String> members, int virtualNodes) {
+        // orden fijo para que un choque de puntos se resuelva igual en todas las instancias
+        TreeSet<String> sorted = new TreeSet<>(members);
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String member : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(member + "#" + i), member);
+            }
+        }
+
+        long[] points = new long[ring.size()];
+        String[] owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> entry : ring.entrySet()) {
+            points[i] = entry.getKey();
+            owners[i] = entry.getValue();
+            i++;
+        }
+        return new ConsistentHashRing(points, owners, List.copyOf(sorted));
+    }
+
+    public String ownerOf(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    // FNV-1a de 64 bits con el mezclado final de murmur3, estable entre JVMs (String.hashCode no reparte bien)
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
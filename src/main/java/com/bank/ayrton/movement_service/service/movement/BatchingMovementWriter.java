@@ -0,0 +1,169 @@
+package com.bank.ayrton.movement_service.service.movement;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// group commit: junta los inserts que llegan de peticiones concurrentes durante maxDelay (o hasta maxBatchSize)
+// y los manda en un solo insertMany. Cada llamador recibe su movimiento recien cuando Mongo confirmo la escritura
+// con journal, y si el bulk falla parcialmente solo reciben error los documentos que fallaron.
+// Los llamadores (hilos del event loop) solo encolan en una cola MPSC; un hilo propio la vacia hacia el buffer, asi
+// armar el lote y convertir los documentos nunca corre en el hilo de una peticion ni hace esperar a las demas
+@Slf4j
+public class BatchingMovementWriter implements MovementWriter, DisposableBean {
+
+    private static final WriteConcern DURABLE = WriteConcern.MAJORITY.withJournal(true);
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final Queue<PendingInsert> queue = Queues.<PendingInsert>unboundedMultiproducer().get();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Scheduler drainScheduler = Schedulers.newSingle("movement-writer", true);
+    // solo emite el hilo de drainScheduler, nunca hay dos emisores a la vez
+    private final Sinks.Many<PendingInsert> pending = Sinks.many().unicast().onBackpressureBuffer();
+    private volatile boolean closed;
+
+    public BatchingMovementWriter(ReactiveMongoTemplate mongoTemplate, int maxBatchSize, Duration maxDelay, int maxInFlight) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionName = mongoTemplate.getCollectionName(Movement.class);
+        pending.asFlux()
+                .bufferTimeout(maxBatchSize, maxDelay, true)
+                .flatMap(this::writeBatch, maxInFlight)
+                .subscribe();
+        log.info("Buffer de escritura de movimientos activo: lote maximo {}, espera maxima {}", maxBatchSize, maxDelay);
+    }
+
+    @Override
+    public Mono<Movement> insert(Movement movement) {
+        return Mono.defer(() -> {
+            if (closed) {
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "El servicio se esta deteniendo"));
+            }
+            Sinks.One<Movement> result = Sinks.one();
+            queue.offer(new PendingInsert(movement, result));
+            if (wip.getAndIncrement() == 0) {
+                drainScheduler.schedule(this::drain);
+            }
+            return result.asMono();
+        });
+    }
+
+    @Override
+    public Flux<Movement> insertAll(List<Movement> movements) {
+        return Flux.fromIterable(movements).flatMapSequential(this::insert);
+    }
+
+    // corre solo en drainScheduler: pasa lo encolado al buffer hasta que no quede nada ni lleguen mas avisos
+    private void drain() {
+        int missed = 1;
+        do {
+            emitQueued();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emitQueued() {
+        PendingInsert insert;
+        while ((insert = queue.poll()) != null) {
+            Sinks.EmitResult emitted = pending.tryEmitNext(insert);
+            if (emitted.isFailure()) {
+                insert.fail(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "No se pudo encolar el movimiento: " + emitted));
+            }
+        }
+    }
+
+    private Mono<Void> writeBatch(List<PendingInsert> batch) {
+        // defer: si falla la conversion de un documento cae en el onErrorResume y falla solo este lote;
+        // una excepcion lanzada directo cortaria el flujo del buffer y las siguientes escrituras no saldrian nunca
+        return Mono.defer(() -> insertMany(batch))
+                .onErrorResume(ex -> {
+                    log.error("Error insertando lote de {} movimientos: {}", batch.size(), ex.getMessage());
+                    batch.forEach(insert -> insert.fail(ex));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> insertMany(List<PendingInsert> batch) {
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (PendingInsert insert : batch) {
+            // el id se asigna aca para poder devolver el movimiento sin releerlo
+            if (insert.movement().getId() == null) {
+                insert.movement().setId(new ObjectId().toHexString());
+            }
+            Document document = new Document();
+            mongoTemplate.getConverter().write(insert.movement(), document);
+            documents.add(document);
+        }
+
+        return mongoTemplate.getCollection(collectionName)
+                .flatMap(collection -> Mono.from(collection.withWriteConcern(DURABLE).insertMany(documents, UNORDERED)))
+                .doOnNext(result -> batch.forEach(PendingInsert::complete))
+                .onErrorResume(MongoBulkWriteException.class, ex -> {
+                    // con ordered(false) Mongo intenta todos los documentos y reporta el indice de cada uno que fallo
+                    boolean[] failed = new boolean[batch.size()];
+                    for (BulkWriteError error : ex.getWriteErrors()) {
+                        failed[error.getIndex()] = true;
+                        batch.get(error.getIndex()).fail(new ResponseStatusException(
+                                HttpStatus.INTERNAL_SERVER_ERROR, "No se pudo registrar el movimiento: " + error.getMessage()));
+                    }
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (!failed[i]) {
+                            if (ex.getWriteConcernError() != null) {
+                                batch.get(i).fail(ex); // escrito pero sin confirmacion de durabilidad
+                            } else {
+                                batch.get(i).complete();
+                            }
+                        }
+                    }
+                    log.warn("Insert en lote con {} errores de {} documentos", ex.getWriteErrors().size(), batch.size());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        // en el mismo hilo del drain: pasa lo que quedo en la cola y completa el flujo para que bufferTimeout
+        // mande el ultimo lote antes de cerrar
+        closed = true;
+        drainScheduler.schedule(() -> {
+            emitQueued();
+            pending.tryEmitComplete();
+        });
+        drainScheduler.disposeGracefully().subscribe();
+    }
+
+    private record PendingInsert(Movement movement, Sinks.One<Movement> result) {
+        void complete() {
+            result.tryEmitValue(movement);
+        }
+
+        void fail(Throwable error) {
+            result.tryEmitError(error);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.bank.ayrton.movement_service.service.movement;
+
+import com.bank.ayrton.movement_service.api.movement.MovementRepository;
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.entity.Movement;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// un viaje a Mongo por llamada, como se hacia antes del buffer de escritura
+@RequiredArgsConstructor
+public class DirectMovementWriter implements MovementWriter {
+
+    private final MovementRepository repository;
+
+    @Override
+    public Mono<Movement> insert(Movement movement) {
+        return repository.save(movement);
+    }
+
+    @Override
+    public Flux<Movement> insertAll(List<Movement> movements) {
+        return repository.saveAll(movements);
+    }
+}
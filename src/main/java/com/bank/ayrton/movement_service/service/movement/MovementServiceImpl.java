@@ -2,18 +2,21 @@ package com.bank.ayrton.movement_service.service.movement;
 
 import com.bank.ayrton.movement_service.api.movement.MovementRepository;
 import com.bank.ayrton.movement_service.api.movement.MovementService;
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
 import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ClientSubtype;
 import com.bank.ayrton.movement_service.dto.ProductDto;
 import com.bank.ayrton.movement_service.dto.ThirdPartyPaymentRequest;
-import com.bank.ayrton.movement_service.dto.YankiMovementEvent;
 import com.bank.ayrton.movement_service.entity.Movement;
 import com.bank.ayrton.movement_service.entity.MovementType;
-import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.bank.ayrton.movement_service.service.rules.MovementRuleEngine;
+import com.bank.ayrton.movement_service.service.rules.RuleSet;
+import com.bank.ayrton.movement_service.service.velocity.VelocityCheckService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
@@ -29,6 +32,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 //Simple Logging Facade for Java sirve para registrar logs
 @Slf4j
@@ -40,16 +44,10 @@ public class MovementServiceImpl implements MovementService {
     private final WebClient clientWebClient;
     private final WebClient productWebClient;
     private final ReactiveRedisTemplate<String, ClientDto> redisTemplate;
-
-    @KafkaListener(topics = "yanki-movements", groupId = "movement-group")
-    public void handleYankiMovement(YankiMovementEvent event) {
-        log.info("Recibiendo transferencia Yanki: de {} a {} por {}", event.getFromCard(), event.getToCard(), event.getAmount());
-
-        transfer(event.getFromCard(), event.getToCard(), event.getAmount())
-                .doOnSuccess(unused -> log.info("Transferencia Yanki procesada correctamente"))
-                .doOnError(error -> log.error("Error al procesar transferencia Yanki: {}", error.getMessage()))
-                .subscribe();
-    }
+    private final VelocityCheckService velocityCheckService;
+    private final MovementWriter movementWriter; // inserts de movimientos nuevos (agrupados si el buffer esta activo)
+    private final MovementRuleEngine ruleEngine;
+    private final MovementHttpCache httpCache; // PUT y DELETE invalidan los ETag (los inserts los cubre el writer)
 
     // Lista los movimientos
     @Override
@@ -68,46 +66,28 @@ public class MovementServiceImpl implements MovementService {
     //registra un nuevo movimiento y hace validaciones
     @Override
     public Mono<Movement> save(Movement movement) {
-        log.info("Registrando nuevo movimiento: {}", movement);
-
-        /* Obtener el cliente: cache Redis → fallback WebClient */
-        Mono<ClientDto> clienteMono =
-                redisTemplate.opsForValue()
-                        .get(movement.getClientId())                       // busca en cache
-                        .switchIfEmpty(Mono.defer(() ->                   // si no está
-                                clientWebClient.get()                     // lo trae del MS cliente
-                                        .uri("/api/v1/client/{id}", movement.getClientId())
-                                        .retrieve()
-                                        .bodyToMono(ClientDto.class)
-                                        .doOnNext(c ->                    // y lo cachea
-                                                redisTemplate.opsForValue()
-                                                        .set(c.getId(), c)
-                                                        .subscribe())
-                        ));
+        // solo los campos clave: el toString completo se formateaba en el hilo del event loop
+        if (log.isInfoEnabled()) {
+            log.info("Registrando nuevo movimiento: cliente {} producto {} tipo {} monto {}",
+                    movement.getClientId(), movement.getProductId(), movement.getType(), movement.getAmount());
+        }
+
+        Mono<ClientDto> clienteMono = findClient(movement.getClientId());
 
 
         /* Una vez obtenido el cliente, valida el producto y procesa */
         return clienteMono.flatMap(cliente ->
-                        productWebClient.get()
-                                .uri("/api/v1/product/{id}", movement.getProductId())
-                                .retrieve()
-                                .bodyToMono(ProductDto.class)
-                                .switchIfEmpty(Mono.error(
-                                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found")))
-                                .flatMap(producto -> {
-
-                                    // regla: solo ‘personal’ o ‘empresarial’ pueden tener tarjeta de crédito
-                                    if (producto.getSubtype() == ProductSubtype.CREDIT_CARD &&
-                                            !"personal".equalsIgnoreCase(cliente.getType()) &&
-                                            !"empresarial".equalsIgnoreCase(cliente.getType())) {
-                                        return Mono.error(new ResponseStatusException(
-                                                HttpStatus.BAD_REQUEST,
-                                                "Tipo de cliente no válido para tarjeta de crédito"));
-                                    }
-
-                                    // resto de la lógica (ya la tenías)
-                                    return validarMovimiento(movement, producto);
-                                })
+                        // control de rafagas en memoria antes de ir al MS producto; si el movimiento no se
+                        // graba (producto inexistente, validacion, error) el cupo reservado se devuelve
+                        velocityCheckService.guard(movement.getClientId(), movement.getProductId(),
+                                movement.getType(), cliente.getSubtype(), movement.getAmount(),
+                                productWebClient.get()
+                                        .uri("/api/v1/product/{id}", movement.getProductId())
+                                        .retrieve()
+                                        .bodyToMono(ProductDto.class)
+                                        .switchIfEmpty(Mono.error(
+                                                new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found")))
+                                        .flatMap(producto -> validarMovimiento(movement, producto, cliente)))
                 )
                 /*  Manejo de errores común */
                 .onErrorResume(ResponseStatusException.class, ex -> {
@@ -121,44 +101,49 @@ public class MovementServiceImpl implements MovementService {
                 });
     }
 
-    private Mono<Movement> validarMovimiento(Movement movement, ProductDto product) {
+    /* Obtener el cliente: cache Redis → fallback WebClient */
+    private Mono<ClientDto> findClient(String clientId) {
+        return redisTemplate.opsForValue()
+                .get(clientId)                                    // busca en cache
+                .switchIfEmpty(Mono.defer(() ->                   // si no está
+                        clientWebClient.get()                     // lo trae del MS cliente
+                                .uri("/api/v1/client/{id}", clientId)
+                                .retrieve()
+                                .bodyToMono(ClientDto.class)
+                                .doOnNext(c ->                    // y lo cachea
+                                        redisTemplate.opsForValue()
+                                                .set(c.getId(), c)
+                                                .subscribe())
+                ));
+    }
+
+    private Mono<Movement> validarMovimiento(Movement movement, ProductDto product, ClientDto client) {
         log.info("Validando movimiento para producto: {}", product.getId());
-        //plazo fijo solo permite retiro en un día específico del mes
-        if (product.getSubtype() == ProductSubtype.FIXED_TERM && movement.getType() == MovementType.WITHDRAWAL) {
-            int today = LocalDate.now().getDayOfMonth();
-            if (product.getAllowedMovementDay() != null && product.getAllowedMovementDay() != today) {
-                log.warn("Retiro no permitido: hoy es día {}, permitido solo el día {}", today, product.getAllowedMovementDay());
-                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Movimiento no permitido: solo se puede hacer el día permitido."));
-            }
-        }
+        // reglas de negocio por (subtipo de producto, tipo de movimiento), ver MovementRuleEngine
+        RuleSet rules = ruleEngine.rulesFor(product.getSubtype(), movement.getType());
+        int today = LocalDate.now().getDayOfMonth();
 
-        Date startOfMonth = Date.from(LocalDate.now().withDayOfMonth(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
-        return repository.findByProductIdAndDateAfter(product.getId(), startOfMonth)
-                .count()
-                .flatMap(movementCount -> {
-                    log.info("Cantidad de movimientos este mes: {}", movementCount);
-
-                    // Aplica comisión si se excede el límite de transacciones gratuitas
-                    if (product.getFreeTransactionLimit() != null && product.getTransactionFee() != null &&
-                            movementCount >= product.getFreeTransactionLimit()) {
-                        log.info("Aplicando comisión de {} por exceder el límite de {} transacciones gratuitas",
-                                product.getTransactionFee(), product.getFreeTransactionLimit());
-                        movement.setAmount(movement.getAmount() + product.getTransactionFee());
-                    }
+        String error = rules.checkBeforeCount(movement, product, client, today);
+        if (error != null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, error));
+        }
 
-                    // no debe exceder el límite de crédito disponible
-                    if ((product.getSubtype() == ProductSubtype.PERSONAL_CREDIT ||
-                            product.getSubtype() == ProductSubtype.BUSINESS_CREDIT ||
-                            product.getSubtype() == ProductSubtype.CREDIT_CARD) &&
-                            movement.getType() == MovementType.WITHDRAWAL) {
-                        if (product.getCreditLimit() != null && movement.getAmount() > product.getCreditLimit()) {
-                            log.warn("Retiro excede el límite de crédito. Monto: {}, Límite: {}", movement.getAmount(), product.getCreditLimit());
-                            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "El monto excede el límite de crédito."));
-                        }
-                    }
+        // el conteo del mes solo se consulta si alguna regla lo usa (comision por transacciones)
+        Mono<Long> monthlyCount = Mono.just(0L);
+        if (rules.needsMonthlyCount()) {
+            Date startOfMonth = Date.from(LocalDate.now().withDayOfMonth(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            monthlyCount = repository.findByProductIdAndDateAfter(product.getId(), startOfMonth)
+                    .count()
+                    .doOnNext(movementCount -> log.info("Cantidad de movimientos este mes: {}", movementCount));
+        }
 
-                    return actualizarBalanceYGuardar(product, movement);
-                });
+        return monthlyCount.flatMap(movementCount -> {
+            String countError = rules.checkAfterCount(movement, product, client, movementCount, today);
+            if (countError != null) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, countError));
+            }
+            return actualizarBalanceYGuardar(product, movement);
+        });
     }
 
     //actualiza el saldo del producto dependiendo del tipo de movimiento
@@ -177,13 +162,15 @@ public class MovementServiceImpl implements MovementService {
                 .bodyValue(product)
                 .retrieve()
                 .bodyToMono(ProductDto.class)
-                .then(repository.save(movement));
+                .then(movementWriter.insert(movement));
     }
 
     // Realiza una transferencia entre productos
     @Override
     public Mono<Void> transfer(String fromProductId, String toProductId, Double amount) {
-        log.info("Iniciando transferencia de {} de {} a {}", amount, fromProductId, toProductId);
+        if (log.isInfoEnabled()) {
+            log.info("Iniciando transferencia de {} de {} a {}", amount, fromProductId, toProductId);
+        }
 
         // Validación básica de nulos o vacíos
         if (fromProductId == null || fromProductId.isBlank() || toProductId == null || toProductId.isBlank()) {
@@ -231,11 +218,30 @@ public class MovementServiceImpl implements MovementService {
                             .retrieve()
                             .bodyToMono(ProductDto.class);
 
-                    return Mono.when(updateFrom, updateTo)
-                            .then(repository.saveAll(List.of(withdrawal, deposit)).then());
+                    // el retiro de la transferencia cuenta para las reglas de velocidad del cliente origen igual
+                    // que uno de save() (POST /transfer, Yanki y Bootcoin pasan por aca); se reserva antes del PUT
+                    Mono<Void> operation = Mono.when(updateFrom, updateTo)
+                            .then(movementWriter.insertAll(List.of(withdrawal, deposit)).then());
+                    return clientSubtype(from.getClientId())
+                            .flatMap(subtype -> velocityCheckService.guard(from.getClientId(), from.getId(),
+                                    MovementType.WITHDRAWAL, subtype.orElse(null), amount, operation));
                 });
     }
 
+    // sin el cliente (MS cliente caido o inexistente) se aplican las reglas del subtipo STANDARD
+    private Mono<Optional<ClientSubtype>> clientSubtype(String clientId) {
+        if (clientId == null) {
+            return Mono.just(Optional.empty());
+        }
+        return findClient(clientId)
+                .map(client -> Optional.ofNullable(client.getSubtype()))
+                .onErrorResume(ex -> {
+                    log.warn("No se pudo obtener el cliente {} para las reglas de velocidad: {}", clientId, ex.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
+
     // Actualiza un movimiento existente por ID
     @Override
     public Mono<Movement> update(String id, Movement movement) {
@@ -243,7 +249,8 @@ public class MovementServiceImpl implements MovementService {
         return repository.findById(id)
                 .flatMap(existing -> {
                     movement.setId(id);
-                    return repository.save(movement);
+                    return repository.save(movement)
+                            .flatMap(saved -> httpCache.onWritten(existing, saved).thenReturn(saved));
                 });
     }
 
@@ -251,7 +258,8 @@ public class MovementServiceImpl implements MovementService {
     @Override
     public Mono<Void> delete(String id) {
         log.info("Eliminando movimiento con ID: {}", id);
-        return repository.deleteById(id);
+        return repository.findById(id)
+                .flatMap(existing -> repository.deleteById(id).then(httpCache.onWritten(existing)));
     }
 
     @Override
@@ -328,7 +336,7 @@ public class MovementServiceImpl implements MovementService {
                             LocalDateTime.now()
                     );
 
-                    Mono<Void> saveMovements = repository.saveAll(List.of(debit, credit)).then();
+                    Mono<Void> saveMovements = movementWriter.insertAll(List.of(debit, credit)).then();
 
                     Mono<Void> updateProducts = Mono.when(
                             productWebClient.put().uri("/api/v1/product/" + from.getId())
@@ -337,7 +345,10 @@ public class MovementServiceImpl implements MovementService {
                                     .bodyValue(to).retrieve().bodyToMono(Void.class)
                     );
 
-                    return saveMovements.then(updateProducts);
+                    // el subtipo del cliente no viene en el producto, se usan las reglas STANDARD
+                    return velocityCheckService.guard(from.getClientId(), fromId,
+                            MovementType.THIRD_PARTY_PAYMENT_SENT, null, amount, saveMovements)
+                            .then(updateProducts);
                 });
     }
 }
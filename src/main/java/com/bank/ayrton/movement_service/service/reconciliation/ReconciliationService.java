@@ -0,0 +1,281 @@
+package com.bank.ayrton.movement_service.service.reconciliation;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.config.ReconciliationProperties;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.dto.ProductMovementSum;
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy;
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy.Kind;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.batch.ProductBatchClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// conciliacion entre el historial de movimientos y el saldo de cada producto. Dos flujos ordenados por
+// productId: la suma neta por producto (agregacion en Mongo, con disco si hace falta) y los saldos del MS
+// producto (keyset por id, la pagina siguiente se pide apenas llega la anterior). Se cruzan como un merge-join, asi en memoria
+// solo esta lo que trae cada lado de prefetch, sin importar cuantos movimientos haya
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconciliationService {
+
+    // tipos que restan del saldo; los que no se aplican al saldo hoy (save() solo mueve DEPOSIT y WITHDRAWAL)
+    // no cuentan. El resto suma su monto tal cual (los pagos a terceros ya se guardan con signo)
+    private static final List<String> SUBTRACTING_TYPES = List.of(
+            MovementType.WITHDRAWAL.name(),
+            MovementType.MAINTENANCE_FEE.name(),
+            MovementType.INTEREST_CHARGE.name());
+    private static final List<String> IGNORED_TYPES = List.of(
+            MovementType.PAYMENT.name(),
+            MovementType.CONSUMPTION.name());
+    private static final int JOIN_PREFETCH = 256;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ProductBatchClient productClient;
+    private final MovementWriter movementWriter;
+    private final ReconciliationProperties properties;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // emite las diferencias a medida que las encuentra; con correct=true inserta un RECONCILIATION_ADJUSTMENT
+    // por cada saldo descuadrado (el saldo del producto se toma como el correcto). Corregir exige que los saldos
+    // de apertura esten en el historial: si no, cada saldo inicial se tomaria como descuadre
+    public Flux<ReconciliationDiscrepancy> reconcile(boolean correct) {
+        return Flux.defer(() -> {
+            if (correct && !properties.isOpeningBalancesRecorded()) {
+                return Flux.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Sin saldos de apertura en el historial no se puede corregir; conciliar con correct=false"));
+            }
+            if (!running.compareAndSet(false, true)) {
+                return Flux.error(new ResponseStatusException(HttpStatus.CONFLICT, "Ya hay una conciliacion en curso"));
+            }
+            Summary summary = new Summary();
+            Flux<ReconciliationDiscrepancy> discrepancies = mergeJoin(movementSums(null), productBalances(), properties.getTolerance(), summary);
+            if (correct) {
+                discrepancies = discrepancies.flatMapSequential(this::correct, properties.getCorrectionConcurrency());
+            }
+            return discrepancies
+                    .doOnNext(discrepancy -> summary.discrepancies++)
+                    .doOnComplete(() -> summary.report(correct))
+                    .doFinally(signal -> running.set(false));
+        });
+    }
+
+    // efecto neto por producto, ordenado por productId (productId != null = solo ese producto)
+    Flux<ProductMovementSum> movementSums(String productId) {
+        Document signedAmount = new Document("$cond", List.of(
+                new Document("$in", List.of("$type", SUBTRACTING_TYPES)),
+                new Document("$multiply", List.of("$amount", -1)),
+                new Document("$cond", List.of(new Document("$in", List.of("$type", IGNORED_TYPES)), 0, "$amount"))));
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (productId != null) {
+            stages.add(context -> new Document("$match", new Document("productId", productId)));
+        }
+        stages.add(context -> new Document("$group", new Document("_id", "$productId")
+                .append("net", new Document("$sum", signedAmount))
+                .append("movements", new Document("$sum", 1))));
+        stages.add(context -> new Document("$sort", new Document("_id", 1)));
+        Aggregation aggregation = Aggregation.newAggregation(stages)
+                .withOptions(AggregationOptions.builder()
+                        .allowDiskUse(true) // decenas de millones de movimientos: el $group y el $sort bajan a disco
+                        .cursorBatchSize(properties.getCursorBatchSize())
+                        .build());
+        return mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(Movement.class), ProductMovementSum.class);
+    }
+
+    // saldos de todos los productos en orden de id. Keyset sobre el ultimo id recibido: con page/size un producto
+    // creado durante la corrida correria las paginas y el mismo id llegaria dos veces (y se "corregiria" su saldo)
+    Flux<ProductDto> productBalances() {
+        int pageSize = properties.getPageSize();
+        return productPageAfter(null, pageSize)
+                .expand(page -> page.size() < pageSize ? Mono.empty()
+                        : productPageAfter(page.get(page.size() - 1).getId(), pageSize))
+                .concatMapIterable(page -> page);
+    }
+
+    private Mono<List<ProductDto>> productPageAfter(String afterId, int pageSize) {
+        return productClient.fetchPageAfter(null, afterId, pageSize).collectList();
+    }
+
+    // con el sistema en linea un descuadre puede ser un movimiento en vuelo (save() o transfer() ya hicieron el PUT
+    // del saldo y el insert no llego): corregirlo dejaria el producto descuadrado al reves cuando llegue. Se vuelve a
+    // leer el saldo y la suma de ese producto y solo se corrige si la diferencia sigue siendo la misma
+    private Mono<ReconciliationDiscrepancy> correct(ReconciliationDiscrepancy discrepancy) {
+        if (discrepancy.getKind() != Kind.BALANCE_MISMATCH) {
+            return Mono.just(discrepancy); // sin producto no hay saldo contra el cual corregir
+        }
+        return Mono.delay(properties.getRecheckDelay())
+                .then(currentDifference(discrepancy.getProductId()))
+                .flatMap(difference -> {
+                    if (Math.abs(difference - discrepancy.getDifference()) >= properties.getTolerance()) {
+                        log.info("Producto {} no se corrige: la diferencia paso de {} a {} durante la conciliacion",
+                                discrepancy.getProductId(), discrepancy.getDifference(), difference);
+                        return Mono.just(discrepancy);
+                    }
+                    Movement adjustment = new Movement(null, discrepancy.getClientId(), discrepancy.getProductId(),
+                            MovementType.RECONCILIATION_ADJUSTMENT, discrepancy.getDifference(), LocalDateTime.now());
+                    return movementWriter.insert(adjustment)
+                            .map(saved -> {
+                                discrepancy.setCorrectionId(saved.getId());
+                                return discrepancy;
+                            });
+                })
+                .defaultIfEmpty(discrepancy); // el producto ya no existe: nada que corregir
+    }
+
+    private Mono<Double> currentDifference(String productId) {
+        return productClient.fetchProduct(productId)
+                .zipWith(movementSums(productId).next()
+                                .map(sum -> sum.getNet() == null ? 0.0 : sum.getNet())
+                                .defaultIfEmpty(0.0),
+                        (product, net) -> round((product.getBalance() == null ? 0 : product.getBalance()) - net));
+    }
+
+    public static Flux<ReconciliationDiscrepancy> mergeJoin(Flux<ProductMovementSum> sums, Flux<ProductDto> products, double tolerance) {
+        return mergeJoin(sums, products, tolerance, new Summary());
+    }
+
+    // los dos lados se leen como streams bloqueantes con prefetch acotado, por eso corre en boundedElastic.
+    // Ambos tienen que venir ordenados por productId (orden binario, el mismo del _id en Mongo)
+    private static Flux<ReconciliationDiscrepancy> mergeJoin(Flux<ProductMovementSum> sums, Flux<ProductDto> products,
+                                                             double tolerance, Summary summary) {
+        return Flux.<ReconciliationDiscrepancy, JoinCursor>using(
+                        () -> new JoinCursor(sums.toStream(JOIN_PREFETCH), products.toStream(JOIN_PREFETCH)),
+                        cursor -> Flux.generate(sink -> {
+                            ReconciliationDiscrepancy next = cursor.nextDiscrepancy(tolerance, summary);
+                            if (next == null) {
+                                sink.complete();
+                            } else {
+                                sink.next(next);
+                            }
+                        }),
+                        JoinCursor::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static final class JoinCursor {
+        private final Stream<ProductMovementSum> sumStream;
+        private final Stream<ProductDto> productStream;
+        private final Iterator<ProductMovementSum> sums;
+        private final Iterator<ProductDto> products;
+        private ProductMovementSum sum;
+        private ProductDto product;
+
+        JoinCursor(Stream<ProductMovementSum> sumStream, Stream<ProductDto> productStream) {
+            this.sumStream = sumStream;
+            this.productStream = productStream;
+            this.sums = sumStream.iterator();
+            this.products = productStream.iterator();
+            this.sum = nextSum();
+            this.product = nextProduct();
+        }
+
+        // avanza el lado con la clave menor (o los dos si coinciden) hasta encontrar una diferencia
+        ReconciliationDiscrepancy nextDiscrepancy(double tolerance, Summary summary) {
+            while (sum != null || product != null) {
+                int order = sum == null ? 1 : product == null ? -1 : sum.getId().compareTo(product.getId());
+                ReconciliationDiscrepancy discrepancy;
+                if (order < 0) {
+                    discrepancy = new ReconciliationDiscrepancy(sum.getId(), null, Kind.UNKNOWN_PRODUCT, null,
+                            round(sum.getNet()), sum.getMovements(), null, null);
+                    summary.movementGroups++;
+                    sum = nextSum();
+                } else {
+                    double balance = product.getBalance() == null ? 0 : product.getBalance();
+                    double net = order == 0 && sum.getNet() != null ? sum.getNet() : 0;
+                    long movements = order == 0 ? sum.getMovements() : 0;
+                    double difference = round(balance - net);
+                    discrepancy = Math.abs(difference) < tolerance ? null
+                            : new ReconciliationDiscrepancy(product.getId(), product.getClientId(), Kind.BALANCE_MISMATCH,
+                                    balance, round(net), movements, difference, null);
+                    summary.products++;
+                    if (discrepancy != null) {
+                        summary.drift += Math.abs(difference);
+                    }
+                    if (order == 0) {
+                        summary.movementGroups++;
+                        sum = nextSum();
+                    }
+                    product = nextProduct();
+                }
+                if (discrepancy != null) {
+                    return discrepancy;
+                }
+            }
+            return null;
+        }
+
+        // el merge-join solo es correcto con ids estrictamente crecientes de cada lado; un id repetido o fuera de
+        // orden se reportaria como descuadre (y con correct=true se escribiria un ajuste), asi que corta la corrida
+        private ProductMovementSum nextSum() {
+            ProductMovementSum next = sums.hasNext() ? sums.next() : null;
+            if (next != null && sum != null) {
+                checkOrder("movimientos", sum.getId(), next.getId());
+            }
+            return next;
+        }
+
+        private ProductDto nextProduct() {
+            ProductDto next = products.hasNext() ? products.next() : null;
+            if (next != null && product != null) {
+                checkOrder("productos", product.getId(), next.getId());
+            }
+            return next;
+        }
+
+        private static void checkOrder(String side, String previous, String next) {
+            if (next == null || (previous != null && next.compareTo(previous) <= 0)) {
+                throw new IllegalStateException("Conciliacion cancelada: los " + side + " no llegan ordenados por id ("
+                        + previous + " seguido de " + next + ")");
+            }
+        }
+
+        void close() {
+            // cancela lo que quede de cada lado si el cliente corta el reporte
+            sumStream.close();
+            productStream.close();
+        }
+    }
+
+    private static double round(Double value) {
+        return value == null ? 0 : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    // contadores del reporte; los actualiza un solo hilo a la vez (generate y la emision son secuenciales)
+    private static final class Summary {
+        private final long startNanos = System.nanoTime();
+        private long products;
+        private long movementGroups;
+        private long discrepancies;
+        private double drift;
+
+        void report(boolean corrected) {
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 0.001);
+            log.info("Conciliacion terminada: {} productos, {} productos con movimientos, {} diferencias ({}), "
+                            + "descuadre total {}, {} s",
+                    products, movementGroups, discrepancies, corrected ? "corregidas" : "sin corregir",
+                    round(drift), Math.round(seconds));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.bank.ayrton.movement_service.service.rules;
+
+import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.Movement;
+
+// regla ya compilada. Devuelve null si el movimiento pasa o el mensaje de error (constante) si no;
+// no arma objetos en el camino normal
+@FunctionalInterface
+public interface MovementRule {
+    String apply(Movement movement, ProductDto product, ClientDto client, long monthlyCount, int today);
+}
@@ -0,0 +1,143 @@
+package com.bank.ayrton.movement_service.service.rules;
+
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties;
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties.RuleDefinition;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+// motor de reglas de validacion: compila las definiciones en una tabla EnumMap[subtipo][tipo] de reglas listas
+// para ejecutar. La tabla es inmutable y se reemplaza completa al recargar, asi las peticiones en curso
+// siguen con la version anterior
+@Slf4j
+@Service
+public class MovementRuleEngine {
+
+    private static final String PREFIX = "movement.validation.rules";
+
+    private final Environment environment;
+    private volatile Table table;
+    private volatile List<RuleDefinition> definitions;
+
+    public MovementRuleEngine(ValidationRuleProperties properties, Environment environment) {
+        this.environment = environment;
+        reload(properties.getRules());
+        if (AotDetector.useGeneratedArtifacts()) {
+            // imagen fast-startup: el contexto AOT corre sin refresh, solo queda la recarga por el endpoint admin
+            log.warn("Contexto AOT: el refresh del config server no recarga las reglas, usar PUT /api/v1/movement/admin/rules");
+        }
+    }
+
+    public RuleSet rulesFor(ProductSubtype subtype, MovementType type) {
+        return table.lookup(subtype, type);
+    }
+
+    public List<RuleDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    // compila y publica las nuevas reglas; si alguna es invalida se mantienen las anteriores
+    public synchronized void reload(List<RuleDefinition> newDefinitions) {
+        if (newDefinitions == null || newDefinitions.isEmpty()) {
+            throw new IllegalArgumentException("Lista de reglas vacia");
+        }
+        Table compiled = compile(newDefinitions);
+        this.definitions = List.copyOf(newDefinitions);
+        this.table = compiled;
+        log.info("Reglas de validacion cargadas: {}", newDefinitions.size());
+    }
+
+    // refresh del config server: se vuelve a leer movement.validation.rules del Environment.
+    // No llega nunca en el perfil fast-startup (AOT con spring.cloud.refresh.enabled=false).
+    // Una regla invalida en el config server no tiene a quien responderle: se loguea y sigue la tabla actual
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith(PREFIX))) {
+            try {
+                reload(Binder.get(environment)
+                        .bind(PREFIX, Bindable.listOf(RuleDefinition.class))
+                        .orElseGet(ValidationRuleProperties::defaultRules));
+            } catch (IllegalArgumentException ex) {
+                log.error("Reglas del refresh rechazadas, siguen las {} anteriores: {}", definitions.size(), ex.getMessage());
+            }
+        }
+    }
+
+    private static Table compile(List<RuleDefinition> definitions) {
+        List<MovementRule> rules = new ArrayList<>(definitions.size());
+        for (RuleDefinition definition : definitions) {
+            rules.add(MovementRules.compile(definition));
+        }
+
+        EnumMap<ProductSubtype, EnumMap<MovementType, RuleSet>> bySubtypeAndType = new EnumMap<>(ProductSubtype.class);
+        EnumMap<ProductSubtype, RuleSet> bySubtypeAnyType = new EnumMap<>(ProductSubtype.class);
+        for (ProductSubtype subtype : ProductSubtype.values()) {
+            EnumMap<MovementType, RuleSet> byType = new EnumMap<>(MovementType.class);
+            for (MovementType type : MovementType.values()) {
+                byType.put(type, select(definitions, rules, subtype, type));
+            }
+            bySubtypeAndType.put(subtype, byType);
+            bySubtypeAnyType.put(subtype, select(definitions, rules, subtype, null));
+        }
+        EnumMap<MovementType, RuleSet> byTypeAnySubtype = new EnumMap<>(MovementType.class);
+        for (MovementType type : MovementType.values()) {
+            byTypeAnySubtype.put(type, select(definitions, rules, null, type));
+        }
+        return new Table(bySubtypeAndType, bySubtypeAnyType, byTypeAnySubtype, select(definitions, rules, null, null));
+    }
+
+    // un subtipo o tipo null (dato incompleto) solo matchea reglas que no filtran por esa dimension
+    private static RuleSet select(List<RuleDefinition> definitions, List<MovementRule> rules,
+                                  ProductSubtype subtype, MovementType type) {
+        List<MovementRule> before = new ArrayList<>();
+        List<MovementRule> after = new ArrayList<>();
+        boolean needsCount = false;
+        for (int i = 0; i < definitions.size(); i++) {
+            RuleDefinition definition = definitions.get(i);
+            if (!matches(definition.getProductSubtypes(), subtype) || !matches(definition.getMovementTypes(), type)) {
+                continue;
+            }
+            if (definition.getKind().isAfterMonthlyCount()) {
+                after.add(rules.get(i));
+                needsCount |= definition.getKind() == RuleKind.TRANSACTION_FEE;
+            } else {
+                before.add(rules.get(i));
+            }
+        }
+        if (before.isEmpty() && after.isEmpty()) {
+            return RuleSet.EMPTY;
+        }
+        return new RuleSet(before.toArray(new MovementRule[0]), after.toArray(new MovementRule[0]), needsCount);
+    }
+
+    private static <E> boolean matches(List<E> filter, E value) {
+        return filter == null || filter.isEmpty() || (value != null && filter.contains(value));
+    }
+
+    private record Table(EnumMap<ProductSubtype, EnumMap<MovementType, RuleSet>> bySubtypeAndType,
+                         EnumMap<ProductSubtype, RuleSet> bySubtypeAnyType,
+                         EnumMap<MovementType, RuleSet> byTypeAnySubtype,
+                         RuleSet anySubtypeAnyType) {
+
+        RuleSet lookup(ProductSubtype subtype, MovementType type) {
+            if (subtype != null && type != null) {
+                return bySubtypeAndType.get(subtype).get(type);
+            }
+            if (subtype != null) {
+                return bySubtypeAnyType.get(subtype);
+            }
+            return type != null ? byTypeAnySubtype.get(type) : anySubtypeAnyType;
+        }
+    }
+}
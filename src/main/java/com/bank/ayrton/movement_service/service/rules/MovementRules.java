@@ -0,0 +1,86 @@
+package com.bank.ayrton.movement_service.service.rules;
+
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties.RuleDefinition;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+
+// arma la regla ejecutable de cada definicion
+@Slf4j
+final class MovementRules {
+
+    private MovementRules() {
+    }
+
+    static MovementRule compile(RuleDefinition definition) {
+        if (definition == null) {
+            throw new IllegalArgumentException("Regla vacia en la lista");
+        }
+        if (definition.getKind() == null) {
+            throw new IllegalArgumentException("Regla sin kind: " + definition);
+        }
+        return switch (definition.getKind()) {
+            case CLIENT_TYPE -> clientType(definition);
+            case ALLOWED_DAY -> allowedDay(message(definition, "Movimiento no permitido: solo se puede hacer el día permitido."));
+            case TRANSACTION_FEE -> transactionFee();
+            case CREDIT_LIMIT -> creditLimit(message(definition, "El monto excede el límite de crédito."));
+        };
+    }
+
+    private static MovementRule clientType(RuleDefinition definition) {
+        // el PUT de admin puede mandar la lista en null o con elementos null: se rechaza igual que vacia
+        List<String> types = definition.getAllowedClientTypes();
+        if (types == null || types.isEmpty() || types.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("CLIENT_TYPE necesita allowedClientTypes: " + definition);
+        }
+        String[] allowed = types.toArray(new String[0]);
+        String message = message(definition, "Tipo de cliente no válido para tarjeta de crédito");
+        return (movement, product, client, monthlyCount, today) -> {
+            String type = client != null ? client.getType() : null;
+            for (String candidate : allowed) {
+                if (candidate.equalsIgnoreCase(type)) {
+                    return null;
+                }
+            }
+            return message;
+        };
+    }
+
+    private static MovementRule allowedDay(String message) {
+        return (movement, product, client, monthlyCount, today) -> {
+            Integer allowedDay = product.getAllowedMovementDay();
+            if (allowedDay != null && allowedDay != today) {
+                log.warn("Retiro no permitido: hoy es día {}, permitido solo el día {}", today, allowedDay);
+                return message;
+            }
+            return null;
+        };
+    }
+
+    private static MovementRule transactionFee() {
+        return (movement, product, client, monthlyCount, today) -> {
+            if (product.getFreeTransactionLimit() != null && product.getTransactionFee() != null &&
+                    monthlyCount >= product.getFreeTransactionLimit()) {
+                log.info("Aplicando comisión de {} por exceder el límite de {} transacciones gratuitas",
+                        product.getTransactionFee(), product.getFreeTransactionLimit());
+                movement.setAmount(movement.getAmount() + product.getTransactionFee());
+            }
+            return null;
+        };
+    }
+
+    private static MovementRule creditLimit(String message) {
+        return (movement, product, client, monthlyCount, today) -> {
+            if (product.getCreditLimit() != null && movement.getAmount() > product.getCreditLimit()) {
+                log.warn("Retiro excede el límite de crédito. Monto: {}, Límite: {}", movement.getAmount(), product.getCreditLimit());
+                return message;
+            }
+            return null;
+        };
+    }
+
+    private static String message(RuleDefinition definition, String defaultMessage) {
+        return definition.getMessage() != null ? definition.getMessage() : defaultMessage;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bank.ayrton.movement_service.service.rules;
+
+// tipos de regla que sabe compilar el motor. Las que necesitan el conteo mensual se evaluan despues
+// de consultar Mongo, en el orden en que fueron declaradas (la comision va antes del limite de credito)
+public enum RuleKind {
+    CLIENT_TYPE(false),      // el tipo de cliente debe estar en allowedClientTypes
+    ALLOWED_DAY(false),      // solo se permite el dia allowedMovementDay del producto
+    TRANSACTION_FEE(true),   // suma transactionFee al monto al superar freeTransactionLimit en el mes
+    CREDIT_LIMIT(true);      // el monto (con comision) no puede superar creditLimit
+
+    private final boolean afterMonthlyCount;
+
+    RuleKind(boolean afterMonthlyCount) {
+        this.afterMonthlyCount = afterMonthlyCount;
+    }
+
+    public boolean isAfterMonthlyCount() {
+        return afterMonthlyCount;
+    }
+}
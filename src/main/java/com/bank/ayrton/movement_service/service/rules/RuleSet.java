@@ -0,0 +1,47 @@
+package com.bank.ayrton.movement_service.service.rules;
+
+import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.Movement;
+
+// reglas que aplican a un (subtipo de producto, tipo de movimiento), separadas por etapa
+public final class RuleSet {
+
+    static final RuleSet EMPTY = new RuleSet(new MovementRule[0], new MovementRule[0], false);
+
+    private final MovementRule[] beforeCount;
+    private final MovementRule[] afterCount;
+    private final boolean needsMonthlyCount;
+
+    RuleSet(MovementRule[] beforeCount, MovementRule[] afterCount, boolean needsMonthlyCount) {
+        this.beforeCount = beforeCount;
+        this.afterCount = afterCount;
+        this.needsMonthlyCount = needsMonthlyCount;
+    }
+
+    // si ninguna regla usa el conteo mensual no hace falta consultar Mongo
+    public boolean needsMonthlyCount() {
+        return needsMonthlyCount;
+    }
+
+    // reglas que no dependen del historial (tipo de cliente, dia permitido)
+    public String checkBeforeCount(Movement movement, ProductDto product, ClientDto client, int today) {
+        return run(beforeCount, movement, product, client, 0, today);
+    }
+
+    // reglas que usan el conteo de movimientos del mes (comision, limite de credito)
+    public String checkAfterCount(Movement movement, ProductDto product, ClientDto client, long monthlyCount, int today) {
+        return run(afterCount, movement, product, client, monthlyCount, today);
+    }
+
+    private static String run(MovementRule[] rules, Movement movement, ProductDto product, ClientDto client,
+                              long monthlyCount, int today) {
+        for (MovementRule rule : rules) {
+            String error = rule.apply(movement, product, client, monthlyCount, today);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+}
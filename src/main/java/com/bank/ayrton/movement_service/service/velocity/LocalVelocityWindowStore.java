@@ -0,0 +1,219 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ventanas en memoria: por cada clave un anillo de buckets [epoca, cantidad+monto] en un AtomicLongArray.
+// Cantidad y monto van empaquetados en un solo long (cantidad en los bits altos) para validar y sumar con un
+// unico CAS por bucket. Las claves se reparten en shards por hash y cada regla tiene sus propios shards, asi no
+// se arma ninguna clave compuesta en cada movimiento. El camino normal solo hace lecturas y CAS, sin locks;
+// solo la primera vez que aparece una clave se crea su anillo.
+public class LocalVelocityWindowStore implements VelocityWindowStore {
+
+    private static final int SHARDS = 64; // potencia de 2
+    private static final int SLOT = 2;    // epoca, cantidad+monto
+    private static final int AMOUNT_BITS = 44; // hasta ~175 mil millones en centimos por bucket
+    private static final long AMOUNT_MASK = (1L << AMOUNT_BITS) - 1;
+    private static final long ROLLING = -1; // epoca mientras un hilo reinicia el bucket
+    // estado del anillo (ultimo long): evictIdle lo sella, vuelve a mirar las epocas y recien ahi lo descarta
+    private static final long LIVE = 0;
+    private static final long SEALING = 1;
+    private static final long DEAD = 2;
+    private static final Mono<Boolean> ALLOWED = Mono.just(Boolean.TRUE);
+    private static final Mono<Boolean> REJECTED = Mono.just(Boolean.FALSE);
+
+    private final List<VelocityRule> rules;
+    private final int buckets;
+    private final ConcurrentHashMap<String, AtomicLongArray>[][] shardsByRule;
+
+    @SuppressWarnings("unchecked")
+    public LocalVelocityWindowStore(List<VelocityRule> rules, int buckets) {
+        this.rules = rules;
+        this.buckets = buckets;
+        this.shardsByRule = new ConcurrentHashMap[rules.size()][SHARDS];
+        for (int r = 0; r < rules.size(); r++) {
+            for (int s = 0; s < SHARDS; s++) {
+                shardsByRule[r][s] = new ConcurrentHashMap<>();
+            }
+        }
+    }
+
+    @Override
+    public Mono<Boolean> tryRecord(VelocityRule rule, String key, long amountCents, long nowMillis) {
+        return record(rule, key, amountCents, nowMillis) ? ALLOWED : REJECTED;
+    }
+
+    @Override
+    public Mono<Void> release(VelocityRule rule, String key, long amountCents, long recordedAtMillis) {
+        unrecord(rule, key, amountCents, recordedAtMillis);
+        return Mono.empty();
+    }
+
+    // version sincrona, la usa tryRecord y el benchmark
+    public boolean record(VelocityRule rule, String key, long amountCents, long nowMillis) {
+        ConcurrentHashMap<String, AtomicLongArray> shard = shardFor(rule, key);
+        while (true) {
+            AtomicLongArray ring = shard.get(key);
+            if (ring == null) {
+                ring = shard.computeIfAbsent(key, k -> newRing());
+            }
+            if (!recordIn(ring, rule, amountCents, nowMillis)) {
+                return false;
+            }
+            // el estado se lee despues del CAS y evictIdle relee las epocas despues de sellar: si el desalojo no vio
+            // este movimiento, aca se ve el sello. Se espera a que termine y, si descarto el anillo, se registra de
+            // nuevo en uno nuevo
+            long state;
+            while ((state = ring.get(stateSlot())) == SEALING) {
+                Thread.onSpinWait();
+            }
+            if (state == LIVE) {
+                return true;
+            }
+            shard.remove(key, ring);
+        }
+    }
+
+    private boolean recordIn(AtomicLongArray ring, VelocityRule rule, long amountCents, long nowMillis) {
+        long bucketNo = nowMillis / rule.getBucketMillis();
+        int current = (int) (bucketNo % buckets) * SLOT;
+        openBucket(ring, current, bucketNo);
+
+        // los demas buckets de la ventana ya no reciben escrituras (solo se suma en el actual), se leen una vez
+        long oldest = bucketNo - buckets + 1;
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < buckets * SLOT; i += SLOT) {
+            long e = ring.get(i);
+            if (i != current && e >= oldest && e <= bucketNo) {
+                long packed = ring.get(i + 1);
+                count += countOf(packed);
+                sum += amountOf(packed);
+            }
+        }
+
+        // validar y sumar en el mismo CAS: dos hilos no pueden pasar ambos con el ultimo lugar de la ventana
+        while (true) {
+            long packed = ring.get(current + 1);
+            if (rule.exceeds(count + countOf(packed) + 1, sum + amountOf(packed) + amountCents)) {
+                return false;
+            }
+            long updated = pack(countOf(packed) + 1, Math.min(AMOUNT_MASK, amountOf(packed) + amountCents));
+            if (ring.compareAndSet(current + 1, packed, updated)) {
+                return true;
+            }
+        }
+    }
+
+    // devuelve lo que sumo record(); si el bucket ya roto lo registrado salio de la ventana y no hay nada que hacer
+    public void unrecord(VelocityRule rule, String key, long amountCents, long recordedAtMillis) {
+        AtomicLongArray ring = shardFor(rule, key).get(key);
+        if (ring == null) {
+            return;
+        }
+        long bucketNo = recordedAtMillis / rule.getBucketMillis();
+        int slot = (int) (bucketNo % buckets) * SLOT;
+        while (ring.get(slot) == bucketNo) {
+            long packed = ring.get(slot + 1);
+            if (countOf(packed) == 0) {
+                return;
+            }
+            long updated = pack(countOf(packed) - 1, Math.max(0, amountOf(packed) - amountCents));
+            if (ring.compareAndSet(slot + 1, packed, updated)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void evictIdle(long nowMillis) {
+        for (VelocityRule rule : rules) {
+            // si el bucket mas reciente ya salio de la ventana, la clave no aporta nada y se puede borrar
+            long oldest = nowMillis / rule.getBucketMillis() - buckets + 1;
+            for (ConcurrentHashMap<String, AtomicLongArray> shard : shardsByRule[rule.getIndex()]) {
+                shard.forEach((key, ring) -> {
+                    if (newestEpoch(ring) < oldest) {
+                        evict(shard, key, ring, oldest);
+                    }
+                });
+            }
+        }
+    }
+
+    // un record() pudo abrir un bucket entre la lectura de las epocas y el borrado: se sella primero y se vuelve a
+    // mirar; si aparecio un movimiento el anillo sigue vivo
+    private void evict(ConcurrentHashMap<String, AtomicLongArray> shard, String key, AtomicLongArray ring, long oldest) {
+        if (!ring.compareAndSet(stateSlot(), LIVE, SEALING)) {
+            return;
+        }
+        if (newestEpoch(ring) >= oldest) {
+            ring.set(stateSlot(), LIVE);
+            return;
+        }
+        shard.remove(key, ring);
+        ring.set(stateSlot(), DEAD);
+    }
+
+    public long size() {
+        long size = 0;
+        for (ConcurrentHashMap<String, AtomicLongArray>[] shards : shardsByRule) {
+            for (ConcurrentHashMap<String, AtomicLongArray> shard : shards) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    private long newestEpoch(AtomicLongArray ring) {
+        long newest = 0;
+        for (int i = 0; i < buckets * SLOT; i += SLOT) {
+            newest = Math.max(newest, ring.get(i));
+        }
+        return newest;
+    }
+
+    // el bucket pertenecia a una vuelta anterior del anillo: un solo hilo lo marca, lo vacia y publica la epoca
+    // nueva; los demas esperan esos pocos ciclos, asi ningun incremento cae en un bucket que se esta reiniciando
+    private static void openBucket(AtomicLongArray ring, int slot, long bucketNo) {
+        while (true) {
+            long epoch = ring.get(slot);
+            if (epoch == ROLLING) {
+                Thread.onSpinWait();
+            } else if (epoch >= bucketNo) {
+                return; // si otro hilo ya abrio uno mas nuevo (reloj adelantado) se cuenta ahi
+            } else if (ring.compareAndSet(slot, epoch, ROLLING)) {
+                ring.set(slot + 1, 0);
+                ring.set(slot, bucketNo);
+                return;
+            }
+        }
+    }
+
+    private static long pack(long count, long amountCents) {
+        return count << AMOUNT_BITS | amountCents;
+    }
+
+    private static long countOf(long packed) {
+        return packed >>> AMOUNT_BITS;
+    }
+
+    private static long amountOf(long packed) {
+        return packed & AMOUNT_MASK;
+    }
+
+    private ConcurrentHashMap<String, AtomicLongArray> shardFor(VelocityRule rule, String key) {
+        int h = key.hashCode();
+        return shardsByRule[rule.getIndex()][(h ^ (h >>> 16)) & (SHARDS - 1)];
+    }
+
+    private int stateSlot() {
+        return buckets * SLOT;
+    }
+
+    private AtomicLongArray newRing() {
+        return new AtomicLongArray(buckets * SLOT + 1);
+    }
+}
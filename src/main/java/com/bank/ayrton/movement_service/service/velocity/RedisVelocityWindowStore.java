@@ -0,0 +1,103 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// ventanas compartidas entre instancias: un hash por clave con campos c<bucket> y s<bucket>.
+// El script lee la ventana, valida y suma en un solo viaje a Redis, de forma atomica
+@Slf4j
+public class RedisVelocityWindowStore implements VelocityWindowStore {
+
+    private static final String KEY_PREFIX = "velocity:";
+
+    // KEYS[1] = hash de la clave; ARGV = bucket actual, buckets, maxCount, maxAmount, monto, ttl en segundos
+    private static final RedisScript<Long> SCRIPT = RedisScript.of("""
+            local bucket = tonumber(ARGV[1])
+            local buckets = tonumber(ARGV[2])
+            local oldest = bucket - buckets + 1
+            local count = 0
+            local sum = 0
+            for i = oldest, bucket do
+              count = count + tonumber(redis.call('HGET', KEYS[1], 'c' .. i) or 0)
+              sum = sum + tonumber(redis.call('HGET', KEYS[1], 's' .. i) or 0)
+            end
+            if count + 1 > tonumber(ARGV[3]) or sum + tonumber(ARGV[5]) > tonumber(ARGV[4]) then
+              return 0
+            end
+            redis.call('HINCRBY', KEYS[1], 'c' .. bucket, 1)
+            redis.call('HINCRBY', KEYS[1], 's' .. bucket, ARGV[5])
+            redis.call('EXPIRE', KEYS[1], ARGV[6])
+            if redis.call('HLEN', KEYS[1]) > 4 * buckets then
+              for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                if tonumber(string.sub(field, 2)) < oldest then
+                  redis.call('HDEL', KEYS[1], field)
+                end
+              end
+            end
+            return 1
+            """, Long.class);
+
+    // KEYS[1] = hash de la clave; ARGV = bucket donde se registro, monto. Si el bucket ya expiro no hace nada
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            local count = tonumber(redis.call('HGET', KEYS[1], 'c' .. ARGV[1]) or 0)
+            if count <= 0 then
+              return 0
+            end
+            redis.call('HINCRBY', KEYS[1], 'c' .. ARGV[1], -1)
+            local sum = tonumber(redis.call('HGET', KEYS[1], 's' .. ARGV[1]) or 0)
+            redis.call('HSET', KEYS[1], 's' .. ARGV[1], math.max(0, sum - tonumber(ARGV[2])))
+            return 1
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final int buckets;
+
+    public RedisVelocityWindowStore(ReactiveStringRedisTemplate redisTemplate, int buckets) {
+        this.redisTemplate = redisTemplate;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public Mono<Boolean> tryRecord(VelocityRule rule, String key, long amountCents, long nowMillis) {
+        long bucketNo = nowMillis / rule.getBucketMillis();
+        long ttlSeconds = Math.max(1, rule.getWindowMillis() / 1000 * 2);
+
+        return redisTemplate.execute(SCRIPT,
+                        List.of(hashKey(rule, key)),
+                        List.of(String.valueOf(bucketNo),
+                                String.valueOf(buckets),
+                                String.valueOf(rule.getMaxCount()),
+                                String.valueOf(rule.getMaxAmountCents()),
+                                String.valueOf(amountCents),
+                                String.valueOf(ttlSeconds)))
+                .next()
+                .map(result -> result == 1L)
+                .onErrorResume(ex -> {
+                    // si Redis no responde no se bloquean los movimientos, solo se pierde el control de velocidad
+                    log.warn("No se pudo validar velocidad en Redis para {}: {}", key, ex.getMessage());
+                    return Mono.just(Boolean.TRUE);
+                });
+    }
+
+    @Override
+    public Mono<Void> release(VelocityRule rule, String key, long amountCents, long recordedAtMillis) {
+        long bucketNo = recordedAtMillis / rule.getBucketMillis();
+        return redisTemplate.execute(RELEASE_SCRIPT,
+                        List.of(hashKey(rule, key)),
+                        List.of(String.valueOf(bucketNo), String.valueOf(amountCents)))
+                .then()
+                .onErrorResume(ex -> {
+                    // solo queda contado de mas hasta que salga de la ventana
+                    log.warn("No se pudo devolver el registro de velocidad en Redis para {}: {}", key, ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private static String hashKey(VelocityRule rule, String key) {
+        return KEY_PREFIX + rule.getIndex() + ":" + key;
+    }
+}
@@ -0,0 +1,194 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import com.bank.ayrton.movement_service.config.VelocityProperties;
+import com.bank.ayrton.movement_service.dto.ClientSubtype;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+// controla rafagas de movimientos (ej. muchos retiros de un cliente en pocos minutos) sin consultar Mongo.
+// Las reglas se compilan al iniciar en una tabla [tipo de movimiento][subtipo de cliente]
+@Slf4j
+@Service
+public class VelocityCheckService {
+
+    private static final VelocityRule[] NO_RULES = new VelocityRule[0];
+
+    private final boolean enabled;
+    private final VelocityRule[][][] rulesByTypeAndSubtype;
+    private final VelocityWindowStore store;
+    private final Clock clock;
+
+    @Autowired
+    public VelocityCheckService(VelocityProperties properties, ClusterProperties clusterProperties,
+                                ReactiveStringRedisTemplate redisTemplate) {
+        this(properties, redisTemplate, Clock.systemUTC());
+        checkClusterMode(properties, clusterProperties);
+    }
+
+    public VelocityCheckService(VelocityProperties properties, ReactiveStringRedisTemplate redisTemplate) {
+        this(properties, redisTemplate, Clock.systemUTC());
+    }
+
+    public VelocityCheckService(VelocityProperties properties, ReactiveStringRedisTemplate redisTemplate, Clock clock) {
+        this.enabled = properties.isEnabled();
+        this.clock = clock;
+
+        List<VelocityRule> rules = new ArrayList<>();
+        List<List<List<VelocityRule>>> table = new ArrayList<>();
+        for (int t = 0; t < MovementType.values().length; t++) {
+            List<List<VelocityRule>> bySubtype = new ArrayList<>();
+            for (int s = 0; s < ClientSubtype.values().length; s++) {
+                bySubtype.add(new ArrayList<>());
+            }
+            table.add(bySubtype);
+        }
+
+        for (VelocityProperties.Rule config : properties.getRules()) {
+            if (config.getMovementType() == null) {
+                throw new IllegalStateException("Regla de velocidad sin movement-type: " + config);
+            }
+            long windowMillis = config.getWindow().toMillis();
+            VelocityRule rule = new VelocityRule(
+                    rules.size(),
+                    config.getScope(),
+                    windowMillis,
+                    Math.max(1, windowMillis / properties.getBuckets()),
+                    config.getMaxCount() != null ? config.getMaxCount() : Long.MAX_VALUE,
+                    config.getMaxAmount() != null ? Math.round(config.getMaxAmount() * 100) : Long.MAX_VALUE);
+            rules.add(rule);
+
+            for (ClientSubtype subtype : ClientSubtype.values()) {
+                if (config.getClientSubtype() == null || config.getClientSubtype() == subtype) {
+                    table.get(config.getMovementType().ordinal()).get(subtype.ordinal()).add(rule);
+                }
+            }
+        }
+
+        this.rulesByTypeAndSubtype = new VelocityRule[table.size()][][];
+        for (int t = 0; t < table.size(); t++) {
+            rulesByTypeAndSubtype[t] = new VelocityRule[ClientSubtype.values().length][];
+            for (int s = 0; s < ClientSubtype.values().length; s++) {
+                rulesByTypeAndSubtype[t][s] = table.get(t).get(s).toArray(NO_RULES);
+            }
+        }
+
+        this.store = properties.getBackend() == VelocityProperties.Backend.REDIS
+                ? new RedisVelocityWindowStore(redisTemplate, properties.getBuckets())
+                : new LocalVelocityWindowStore(rules, properties.getBuckets());
+        log.info("Control de velocidad {} con {} reglas en backend {}",
+                enabled ? "activo" : "inactivo", rules.size(), properties.getBackend());
+    }
+
+    // reserva el movimiento en las ventanas de sus reglas y recien ahi ejecuta la operacion (validar y grabar).
+    // Si alguna regla se supera responde 429 y devuelve lo reservado en las anteriores; si la operacion falla
+    // tambien se devuelve todo, asi solo consumen cupo los movimientos que se grabaron
+    public <T> Mono<T> guard(String clientId, String productId, MovementType type, ClientSubtype subtype, Double amount,
+                             Mono<T> operation) {
+        if (!enabled || type == null) {
+            return operation;
+        }
+        VelocityRule[] rules = rulesByTypeAndSubtype[type.ordinal()]
+                [(subtype != null ? subtype : ClientSubtype.STANDARD).ordinal()];
+        if (rules.length == 0) {
+            return operation;
+        }
+        long amountCents = amount != null ? Math.round(Math.abs(amount) * 100) : 0;
+
+        return Mono.defer(() -> {
+            long now = clock.millis();
+            String[] keys = new String[rules.length];
+            for (int i = 0; i < rules.length; i++) {
+                keys[i] = keyFor(rules[i], clientId, productId);
+            }
+
+            // en memoria se evalua directo, sin armar la cadena reactiva
+            if (store instanceof LocalVelocityWindowStore local) {
+                for (int i = 0; i < rules.length; i++) {
+                    if (keys[i] != null && !local.record(rules[i], keys[i], amountCents, now)) {
+                        for (int j = 0; j < i; j++) {
+                            if (keys[j] != null) {
+                                local.unrecord(rules[j], keys[j], amountCents, now);
+                            }
+                        }
+                        return reject(rules[i], keys[i]);
+                    }
+                }
+                return withRelease(operation, rules, keys, rules.length, amountCents, now);
+            }
+
+            // cuantas reglas quedaron reservadas antes de la que rechazo
+            int[] reserved = new int[1];
+            return Flux.range(0, rules.length)
+                    .concatMap(i -> keys[i] == null ? Mono.<Void>empty()
+                            : store.tryRecord(rules[i], keys[i], amountCents, now)
+                                    .flatMap(allowed -> {
+                                        if (allowed) {
+                                            reserved[0] = i + 1;
+                                            return Mono.<Void>empty();
+                                        }
+                                        return release(rules, keys, reserved[0], amountCents, now)
+                                                .then(this.<Void>reject(rules[i], keys[i]));
+                                    }))
+                    .then(Mono.defer(() -> withRelease(operation, rules, keys, rules.length, amountCents, now)));
+        });
+    }
+
+    private <T> Mono<T> withRelease(Mono<T> operation, VelocityRule[] rules, String[] keys, int reserved,
+                                    long amountCents, long now) {
+        return operation.onErrorResume(ex -> release(rules, keys, reserved, amountCents, now).then(Mono.error(ex)));
+    }
+
+    // devuelve las primeras 'count' reglas reservadas
+    private Mono<Void> release(VelocityRule[] rules, String[] keys, int count, long amountCents, long now) {
+        if (count == 0) {
+            return Mono.empty();
+        }
+        return Flux.range(0, count)
+                .filter(i -> keys[i] != null)
+                .concatMap(i -> store.release(rules[i], keys[i], amountCents, now))
+                .then();
+    }
+
+    // en modo cluster los movimientos de un cliente se reparten entre instancias (se rutea por producto), asi que
+    // una ventana CLIENT en memoria veria solo una parte. Las reglas PRODUCT si funcionan: el producto tiene dueno
+    public static void checkClusterMode(VelocityProperties properties, ClusterProperties clusterProperties) {
+        if (!clusterProperties.isEnabled() || !properties.isEnabled()
+                || properties.getBackend() != VelocityProperties.Backend.LOCAL) {
+            return;
+        }
+        for (VelocityProperties.Rule rule : properties.getRules()) {
+            if (rule.getScope() == VelocityScope.CLIENT) {
+                throw new IllegalStateException("El modo cluster necesita movement.velocity.backend=redis para la regla "
+                        + "por cliente " + rule + "; con backend local cada instancia cuenta solo sus movimientos");
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${movement.velocity.eviction-interval:PT1M}")
+    public void evictIdleWindows() {
+        store.evictIdle(clock.millis());
+    }
+
+    private String keyFor(VelocityRule rule, String clientId, String productId) {
+        return rule.getScope() == VelocityScope.CLIENT ? clientId : productId;
+    }
+
+    private <T> Mono<T> reject(VelocityRule rule, String key) {
+        log.warn("Movimiento rechazado por control de velocidad: {} {} supera la regla {}", rule.getScope(), key, rule);
+        return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                "Demasiados movimientos en poco tiempo, intente mas tarde"));
+    }
+}
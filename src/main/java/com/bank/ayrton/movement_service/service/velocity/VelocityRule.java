@@ -0,0 +1,22 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// regla ya compilada: montos en centimos y ventana en milisegundos para no convertir en cada movimiento
+@Getter
+@ToString
+@AllArgsConstructor
+public class VelocityRule {
+    private final int index;              // posicion de la regla, la usan los stores para separar ventanas
+    private final VelocityScope scope;
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final long maxCount;          // Long.MAX_VALUE = sin limite
+    private final long maxAmountCents;    // Long.MAX_VALUE = sin limite
+
+    public boolean exceeds(long count, long amountCents) {
+        return count > maxCount || amountCents > maxAmountCents;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+// sobre que se cuenta la ventana: el cliente que hace el movimiento o el producto afectado
+public enum VelocityScope {
+    CLIENT,
+    PRODUCT
+}
@@ -0,0 +1,17 @@
+package com.bank.ayrton.movement_service.service.velocity;
+
+import reactor.core.publisher.Mono;
+
+// guarda los contadores de ventana deslizante (cantidad y monto) por clave
+public interface VelocityWindowStore {
+
+    // suma el movimiento a la ventana de la clave solo si no supera la regla; true = permitido
+    Mono<Boolean> tryRecord(VelocityRule rule, String key, long amountCents, long nowMillis);
+
+    // devuelve un registro de tryRecord cuyo movimiento no llego a grabarse (otra regla o la validacion lo rechazo)
+    Mono<Void> release(VelocityRule rule, String key, long amountCents, long recordedAtMillis);
+
+    // limpia ventanas sin actividad, los stores que expiran solos no necesitan hacer nada
+    default void evictIdle(long nowMillis) {
+    }
+}
@@ -0,0 +1,276 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.movement.BatchingMovementWriter;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+// el writer contra un ReactiveMongoTemplate simulado: cada insertMany queda en una cola y el test decide
+// cuando (y como) lo confirma Mongo
+public class BatchingMovementWriterTest {
+
+    private ReactiveMongoTemplate mongoTemplate;
+    private MongoCollection<Document> collection;
+    private MappingMongoConverter converter;
+    private final BlockingQueue<InsertCall> calls = new LinkedBlockingQueue<>();
+    private BatchingMovementWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        collection = mock(MongoCollection.class);
+        // mismo converter que arma Spring Boot, con los tipos de java.time como tipos simples
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollection("movements")).thenReturn(Mono.just(collection));
+        when(collection.withWriteConcern(any(WriteConcern.class))).thenReturn(collection);
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            InsertCall call = new InsertCall(List.copyOf(invocation.getArgument(0)), Sinks.one(),
+                    Thread.currentThread().getName());
+            calls.add(call);
+            return call.result().asMono();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.destroy();
+        }
+    }
+
+    @Test
+    void testCallerCompletesOnlyAfterDurableInsert() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 10, Duration.ofMillis(20), 4);
+
+        Sinks.One<Movement> saved = Sinks.one();
+        writer.insert(movement("c1", 10.0)).subscribe(saved::tryEmitValue, saved::tryEmitError);
+
+        InsertCall call = nextCall();
+        assertEquals(1, call.documents().size());
+        verify(collection).withWriteConcern(WriteConcern.MAJORITY.withJournal(true));
+
+        // Mongo todavia no confirmo: el llamador sigue esperando
+        StepVerifier.create(saved.asMono())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(() -> call.acknowledge())
+                .assertNext(movement -> {
+                    assertNotNull(movement.getId());
+                    assertEquals(movement.getId(), call.documents().get(0).get("_id").toString());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void testBulkWriteErrorFailsOnlyTheMatchingCaller() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 3, Duration.ofSeconds(10), 4);
+
+        Sinks.One<List<Signal<Movement>>> collected = Sinks.one();
+        // merge se suscribe a los tres a la vez, asi caen en el mismo lote
+        Flux.merge(
+                        writer.insert(movement("c0", 1.0)).materialize(),
+                        writer.insert(movement("c1", 2.0)).materialize(),
+                        writer.insert(movement("c2", 3.0)).materialize())
+                .collectSortedList((a, b) -> clientOf(a).compareTo(clientOf(b)))
+                .subscribe(collected::tryEmitValue);
+
+        InsertCall call = nextCall();
+        assertEquals(3, call.documents().size());
+        call.result().tryEmitError(new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+                null, new ServerAddress(), Set.of()));
+
+        List<Signal<Movement>> signals = collected.asMono().block(Duration.ofSeconds(5));
+        assertNotNull(signals);
+        assertTrue(signals.get(0).isOnNext());
+        assertTrue(signals.get(1).isOnError());
+        assertInstanceOf(ResponseStatusException.class, signals.get(1).getThrowable());
+        assertTrue(signals.get(1).getThrowable().getMessage().contains("duplicate key"));
+        assertTrue(signals.get(2).isOnNext());
+    }
+
+    @Test
+    void testFlushesBySize() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 3, Duration.ofHours(1), 4);
+
+        for (int i = 0; i < 4; i++) {
+            writer.insert(movement("c" + i, i)).subscribe();
+        }
+
+        // el lote lleno sale sin esperar la demora; el cuarto queda esperando su propio lote
+        assertEquals(3, nextCall().documents().size());
+        assertNull(calls.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testFlushesByTimeout() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 100, Duration.ofMillis(50), 4);
+
+        writer.insert(movement("c1", 1.0)).subscribe();
+        writer.insert(movement("c2", 2.0)).subscribe();
+
+        InsertCall call = calls.poll(2, TimeUnit.SECONDS);
+        assertNotNull(call, "el lote incompleto debia salir al vencer la demora");
+        assertEquals(2, call.documents().size());
+    }
+
+    @Test
+    void testKeepsCallerOrder() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 5, Duration.ofMillis(20), 4);
+
+        List<Movement> movements = List.of(movement("c0", 1.0), movement("c1", 2.0), movement("c2", 3.0),
+                movement("c3", 4.0), movement("c4", 5.0), movement("c5", 6.0), movement("c6", 7.0));
+        Sinks.One<List<Movement>> saved = Sinks.one();
+        writer.insertAll(movements).collectList().subscribe(saved::tryEmitValue, saved::tryEmitError);
+
+        // 7 movimientos: un lote lleno de 5 y otro de 2, los documentos en el orden en que llegaron
+        InsertCall first = nextCall();
+        InsertCall second = nextCall();
+        assertEquals(List.of("c0", "c1", "c2", "c3", "c4"), clientIds(first));
+        assertEquals(List.of("c5", "c6"), clientIds(second));
+
+        // el segundo lote confirma antes, pero insertAll devuelve en el orden original
+        second.acknowledge();
+        first.acknowledge();
+        List<Movement> result = saved.asMono().block(Duration.ofSeconds(5));
+        assertNotNull(result);
+        assertEquals(List.of("c0", "c1", "c2", "c3", "c4", "c5", "c6"),
+                result.stream().map(Movement::getClientId).toList());
+    }
+
+    @Test
+    void testFailedBatchDoesNotStopTheWriter() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 1, Duration.ofMillis(20), 1);
+
+        // el primer lote falla antes de llegar a Mongo (conversion), el siguiente se escribe normal
+        when(mongoTemplate.getConverter()).thenThrow(new IllegalStateException("sin converter")).thenReturn(converter);
+        StepVerifier.create(writer.insert(movement("c1", 1.0)))
+                .expectErrorMessage("sin converter")
+                .verify(Duration.ofSeconds(5));
+
+        Sinks.One<Movement> saved = Sinks.one();
+        writer.insert(movement("c2", 2.0)).subscribe(saved::tryEmitValue, saved::tryEmitError);
+        nextCall().acknowledge();
+        Movement movement = saved.asMono().block(Duration.ofSeconds(5));
+        assertNotNull(movement);
+        assertEquals("c2", movement.getClientId());
+    }
+
+    @Test
+    void testConcurrentCallersOnlyEnqueue() throws Exception {
+        writer = new BatchingMovementWriter(mongoTemplate, 64, Duration.ofMillis(5), 8);
+
+        // muchos hilos insertando a la vez: ninguno falla por contencion y los lotes se arman fuera de sus hilos
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService callers = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "caller"));
+        CountDownLatch start = new CountDownLatch(1);
+        Sinks.Many<Signal<Movement>> results = Sinks.many().replay().all();
+        List<Future<?>> submitted = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            submitted.add(callers.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    writer.insert(movement("c" + thread + "-" + i, i)).materialize()
+                            .subscribe(signal -> results.emitNext(signal, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1))));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : submitted) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        int documents = 0;
+        while (documents < threads * perThread) {
+            InsertCall call = nextCall();
+            assertNotEquals("caller", call.thread());
+            documents += call.documents().size();
+            call.acknowledge();
+        }
+        assertEquals(threads * perThread, documents);
+        List<Signal<Movement>> signals = results.asFlux().take(threads * perThread).collectList().block(Duration.ofSeconds(10));
+        assertNotNull(signals);
+        assertTrue(signals.stream().allMatch(Signal::isOnNext));
+    }
+
+    private InsertCall nextCall() throws InterruptedException {
+        InsertCall call = calls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(call, "no llego el insertMany");
+        return call;
+    }
+
+    private static List<String> clientIds(InsertCall call) {
+        return call.documents().stream().map(document -> document.getString("clientId")).toList();
+    }
+
+    private static String clientOf(Signal<Movement> signal) {
+        // los errores no traen el movimiento; el unico que falla es c1
+        return signal.isOnNext() ? signal.get().getClientId() : "c1";
+    }
+
+    private static Movement movement(String clientId, double amount) {
+        return new Movement(null, clientId, "p-" + clientId, MovementType.DEPOSIT, amount, LocalDateTime.now());
+    }
+
+    private record InsertCall(List<Document> documents, Sinks.One<InsertManyResult> result, String thread) {
+        void acknowledge() {
+            result.tryEmitValue(InsertManyResult.acknowledged(Map.of()));
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import com.bank.ayrton.movement_service.config.WebClientConfig;
+import com.bank.ayrton.movement_service.controller.InternalMovementController;
+import com.bank.ayrton.movement_service.service.cluster.ClusterMembership;
+import com.bank.ayrton.movement_service.service.cluster.ClusterRoutingMovementService;
+import com.bank.ayrton.movement_service.service.cluster.ClusterSecretWebFilter;
+import com.bank.ayrton.movement_service.service.cluster.ConsistentHashRing;
+import com.bank.ayrton.movement_service.service.movement.MovementServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class ClusterRoutingTest {
+
+    private static final String SECRET = "secreto-de-prueba";
+    private static final List<String> MEMBERS = List.of("http://localhost:8083", "http://localhost:8093", "http://localhost:8103");
+
+    @Test
+    void testOwnershipIsBalancedAndMovesMinimallyOnScaleUp() {
+        ConsistentHashRing ring = ConsistentHashRing.of(MEMBERS, 128);
+        Map<String, Integer> owned = new HashMap<>();
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            String owner = ring.ownerOf("product-" + i);
+            before.put("product-" + i, owner);
+            owned.merge(owner, 1, Integer::sum);
+        }
+        owned.values().forEach(count -> assertTrue(count > 6_000 && count < 14_000, "reparto desparejo: " + owned));
+
+        List<String> scaled = new ArrayList<>(MEMBERS);
+        scaled.add("http://localhost:8113");
+        ConsistentHashRing scaledRing = ConsistentHashRing.of(scaled, 128);
+        int moved = 0;
+        for (Map.Entry<String, String> entry : before.entrySet()) {
+            String owner = scaledRing.ownerOf(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                // solo se mueven productos hacia la instancia nueva
+                assertEquals("http://localhost:8113", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > 4_500 && moved < 10_500, "movidos: " + moved);
+    }
+
+    @Test
+    void testInstancesAgreeOnOwnerRegardlessOfMemberOrder() {
+        ConsistentHashRing a = ConsistentHashRing.of(MEMBERS, 128);
+        ConsistentHashRing b = ConsistentHashRing.of(List.of(MEMBERS.get(2), MEMBERS.get(0), MEMBERS.get(1)), 128);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(a.ownerOf("p" + i), b.ownerOf("p" + i));
+        }
+        assertNull(ConsistentHashRing.of(List.of(), 128).ownerOf("p1"));
+    }
+
+    // tres instancias en la misma JVM: cada una procesa sus productos y reenvia los ajenos al dueno
+    @Test
+    void testRoutesToOwnerInstance() {
+        ConsistentHashRing ring = ConsistentHashRing.of(MEMBERS, 128);
+        for (String self : MEMBERS) {
+            List<ClientRequest> forwarded = new ArrayList<>();
+            WebClient clusterWebClient = WebClient.builder()
+                    .exchangeFunction(request -> {
+                        forwarded.add(request);
+                        return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                    })
+                    .build();
+            MovementServiceImpl local = mock(MovementServiceImpl.class);
+            when(local.transfer(anyString(), anyString(), anyDouble())).thenReturn(Mono.empty());
+            ClusterRoutingMovementService service = new ClusterRoutingMovementService(local, membership(self), clusterWebClient);
+
+            int localCalls = 0;
+            for (int i = 0; i < 50; i++) {
+                String productId = "product-" + i;
+                StepVerifier.create(service.transfer(productId, "dest", 10.0)).verifyComplete();
+                if (ring.ownerOf(productId).equals(self)) {
+                    localCalls++;
+                } else {
+                    ClientRequest last = forwarded.get(forwarded.size() - 1);
+                    assertTrue(last.url().toString().startsWith(ring.ownerOf(productId) + "/internal/v1/movement/transfer"));
+                }
+            }
+            verify(local, times(localCalls)).transfer(anyString(), anyString(), anyDouble());
+            assertEquals(50 - localCalls, forwarded.size());
+        }
+    }
+
+    // tres instancias reales en localhost (Netty con InternalMovementController y el filtro del secreto):
+    // el reenvio pasa por HTTP y los errores de la duena vuelven con su status y motivo
+    @Test
+    void testForwardsOverHttpBetweenLocalInstances() {
+        List<LocalInstance> instances = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                instances.add(LocalInstance.start());
+            }
+            List<String> members = instances.stream().map(LocalInstance::url).toList();
+            ConsistentHashRing ring = ConsistentHashRing.of(members, 128);
+
+            for (LocalInstance entry : instances) {
+                ClusterRoutingMovementService service = new ClusterRoutingMovementService(entry.local,
+                        membership(entry.url(), members), clusterWebClient(SECRET));
+                for (int i = 0; i < 30; i++) {
+                    StepVerifier.create(service.transfer("product-" + i, "dest", 10.0)).verifyComplete();
+                }
+            }
+            // cada producto se proceso siempre en su duena, sin importar a que instancia llego
+            for (LocalInstance instance : instances) {
+                long owned = IntStream.range(0, 30)
+                        .filter(i -> ring.ownerOf("product-" + i).equals(instance.url()))
+                        .count();
+                verify(instance.local, times((int) owned * instances.size()))
+                        .transfer(anyString(), eq("dest"), eq(10.0));
+            }
+
+            // error de negocio en la duena: mismo status y el motivo, no el JSON crudo
+            String productId = "product-0";
+            LocalInstance owner = instances.get(members.indexOf(ring.ownerOf(productId)));
+            LocalInstance other = instances.stream().filter(instance -> instance != owner).findFirst().orElseThrow();
+            when(owner.local.transfer(eq(productId), eq("dest"), eq(99.0))).thenReturn(Mono.error(
+                    new ResponseStatusException(HttpStatus.BAD_REQUEST, "Saldo insuficiente en cuenta origen")));
+            ClusterRoutingMovementService forwarder = new ClusterRoutingMovementService(other.local,
+                    membership(other.url(), members), clusterWebClient(SECRET));
+            StepVerifier.create(forwarder.transfer(productId, "dest", 99.0))
+                    .expectErrorSatisfies(ex -> {
+                        ResponseStatusException status = (ResponseStatusException) ex;
+                        assertEquals(HttpStatus.BAD_REQUEST, status.getStatusCode());
+                        assertEquals("Saldo insuficiente en cuenta origen", status.getReason());
+                    })
+                    .verify();
+
+            // sin el secreto la ruta interna no procesa nada
+            clusterWebClient(null).post()
+                    .uri(owner.url() + ClusterRoutingMovementService.INTERNAL_PATH
+                            + "/transfer?fromProductId=x&toProductId=y&amount=1")
+                    .exchangeToMono(response -> Mono.just(response.statusCode()))
+                    .as(StepVerifier::create)
+                    .expectNext(HttpStatus.UNAUTHORIZED)
+                    .verifyComplete();
+            clusterWebClient("otro").post()
+                    .uri(owner.url() + ClusterRoutingMovementService.INTERNAL_PATH
+                            + "/transfer?fromProductId=x&toProductId=y&amount=1")
+                    .exchangeToMono(response -> Mono.just(response.statusCode()))
+                    .as(StepVerifier::create)
+                    .expectNext(HttpStatus.UNAUTHORIZED)
+                    .verifyComplete();
+            verify(owner.local, never()).transfer(eq("x"), anyString(), anyDouble());
+        } finally {
+            instances.forEach(LocalInstance::stop);
+        }
+    }
+
+    @Test
+    void testClusterModeRequiresSecret() {
+        ClusterProperties properties = clusterProperties(MEMBERS.get(0), MEMBERS);
+        properties.setSecret(" ");
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        assertThrows(IllegalStateException.class, () -> new ClusterMembership(properties,
+                beans.getBeanProvider(DiscoveryClient.class), beans.getBeanProvider(Registration.class), "movement-service"));
+    }
+
+    private static WebClient clusterWebClient(String secret) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setSecret(secret);
+        return new WebClientConfig().clusterWebClient(WebClient.builder(), properties);
+    }
+
+    private static ClusterMembership membership(String self) {
+        return membership(self, MEMBERS);
+    }
+
+    private static ClusterMembership membership(String self, List<String> members) {
+        ClusterProperties properties = clusterProperties(self, members);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        return new ClusterMembership(properties, beans.getBeanProvider(DiscoveryClient.class),
+                beans.getBeanProvider(Registration.class), "movement-service");
+    }
+
+    private static ClusterProperties clusterProperties(String self, List<String> members) {
+        ClusterProperties properties = new ClusterProperties();
+        properties.setEnabled(true);
+        properties.setDiscovery(ClusterProperties.Discovery.STATIC);
+        properties.setSelfUrl(self);
+        properties.setMembers(members);
+        properties.setSecret(SECRET);
+        return properties;
+    }
+
+    // una instancia de movement-service reducida a la capa web de la ruta interna, en un puerto libre
+    private record LocalInstance(AnnotationConfigApplicationContext context, DisposableServer server,
+                                 MovementServiceImpl local) {
+
+        static LocalInstance start() {
+            MovementServiceImpl local = mock(MovementServiceImpl.class);
+            when(local.transfer(anyString(), anyString(), anyDouble())).thenReturn(Mono.empty());
+            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+            context.registerBean(MovementServiceImpl.class, () -> local);
+            context.registerBean(ClusterProperties.class, () -> clusterProperties("http://localhost", List.of()));
+            context.register(InternalWebConfig.class, ClusterSecretWebFilter.class, InternalMovementController.class);
+            context.refresh();
+            HttpHandler handler = WebHttpHandlerBuilder.applicationContext(context).build();
+            DisposableServer server = HttpServer.create()
+                    .host("127.0.0.1")
+                    .port(0)
+                    .handle(new ReactorHttpHandlerAdapter(handler))
+                    .bindNow();
+            return new LocalInstance(context, server, local);
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.port();
+        }
+
+        void stop() {
+            server.disposeNow(Duration.ofSeconds(1));
+            context.close();
+        }
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class InternalWebConfig {
+    }
+}
@@ -0,0 +1,326 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.config.BatchProperties;
+import com.bank.ayrton.movement_service.dto.BalanceAdjustment;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.BatchRun;
+import com.bank.ayrton.movement_service.entity.BatchStatus;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.batch.BatchRunStore;
+import com.bank.ayrton.movement_service.service.batch.MonthlyBatchService;
+import com.bank.ayrton.movement_service.service.batch.ProductBatchClient;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// batch de fin de mes contra un MS producto simulado. Por defecto 60k productos; para probar el volumen real:
+// ./mvnw test -Dtest=MonthlyBatchServiceTest -Dbatch.stub.products=1000000
+public class MonthlyBatchServiceTest {
+
+    private static final int PRODUCTS = Integer.getInteger("batch.stub.products", 60_000);
+    private static final YearMonth PERIOD = YearMonth.of(2025, 9);
+
+    @Test
+    void testChargesEveryProductOnceAndSkipsCompletedPeriod() {
+        StubProductService products = new StubProductService(PRODUCTS);
+        InMemoryBatchRunStore store = new InMemoryBatchRunStore();
+        MonthlyBatchService service = new MonthlyBatchService(properties(), products, store);
+
+        StepVerifier.create(service.run(PERIOD))
+                .assertNext(run -> {
+                    assertEquals(BatchStatus.COMPLETED, run.getStatus());
+                    assertEquals(products.expectedCharges(), run.getCreatedMovements());
+                    assertEquals(products.expectedProcessedProducts(), run.getProcessedProducts());
+                })
+                .verifyComplete();
+        assertEquals(products.expectedCharges(), store.movements.size());
+        assertEquals(products.expectedCharges(), products.applied.size());
+        assertEquals(products.expectedBalanceDelta(), products.balanceDelta.get());
+
+        // el mismo periodo no se vuelve a procesar
+        StepVerifier.create(service.run(PERIOD))
+                .assertNext(run -> assertEquals(BatchStatus.COMPLETED, run.getStatus()))
+                .verifyComplete();
+        assertEquals(products.expectedCharges(), store.movements.size());
+        assertEquals(products.expectedCharges(), products.applied.size());
+    }
+
+    @Test
+    void testResumesFromCheckpointWithoutDuplicatingCharges() {
+        StubProductService products = new StubProductService(PRODUCTS);
+        InMemoryBatchRunStore store = new InMemoryBatchRunStore();
+        MonthlyBatchService service = new MonthlyBatchService(properties(), products, store);
+
+        // se cae a mitad de una pagina de creditos, con parte de sus movimientos y saldos ya grabados
+        products.failAdjustmentsAfter.set(products.expectedCharges() / 2);
+        StepVerifier.create(service.run(PERIOD))
+                .expectError()
+                .verify();
+        BatchRun failed = store.runs.get(BatchRun.idOf(MonthlyBatchService.JOB, PERIOD.toString()));
+        assertEquals(BatchStatus.FAILED, failed.getStatus());
+        assertTrue(failed.getProcessedProducts() > 0 && failed.getProcessedProducts() < PRODUCTS);
+
+        assertNotNull(failed.getLastProductId());
+
+        products.failAdjustmentsAfter.set(-1);
+        products.requestedAfter.clear();
+        StepVerifier.create(service.run(PERIOD))
+                .assertNext(run -> {
+                    assertEquals(BatchStatus.COMPLETED, run.getStatus());
+                    // los contadores cuentan la pagina reprocesada una sola vez, aunque parte ya estaba insertada
+                    assertEquals(products.expectedProcessedProducts(), run.getProcessedProducts());
+                    assertEquals(products.expectedCharges(), run.getCreatedMovements());
+                })
+                .verifyComplete();
+        // retoma despues del ultimo producto del checkpoint, no desde el inicio de la fase
+        assertEquals(MonthlyBatchService.PHASES.get(failed.getPhase()) + ":" + failed.getLastProductId(),
+                products.requestedAfter.get(0));
+
+        // la pagina en curso se reproceso: ni movimientos ni ajustes de saldo duplicados
+        assertTrue(products.replayedAdjustments.get() > 0);
+        assertEquals(products.expectedCharges(), store.movements.size());
+        assertEquals(products.expectedCharges(), products.applied.size());
+        assertEquals(products.expectedBalanceDelta(), products.balanceDelta.get());
+    }
+
+    @Test
+    void testSkipsProductsOfAnotherSubtype() {
+        // el MS producto ignora ?subtype=: cada fase recibe todos los productos y solo cobra los suyos
+        StubProductService products = new StubProductService(6_000);
+        products.ignoreSubtype = true;
+        InMemoryBatchRunStore store = new InMemoryBatchRunStore();
+        MonthlyBatchService service = new MonthlyBatchService(properties(), products, store);
+
+        StepVerifier.create(service.run(PERIOD))
+                .assertNext(run -> assertEquals(products.expectedCharges(), run.getCreatedMovements()))
+                .verifyComplete();
+        assertEquals(products.expectedCharges(), store.movements.size());
+        assertEquals(products.expectedBalanceDelta(), products.balanceDelta.get());
+    }
+
+    private static BatchProperties properties() {
+        BatchProperties properties = new BatchProperties();
+        properties.setPageSize(1000);
+        properties.setChunkSize(100);
+        properties.setParallelism(4);
+        return properties;
+    }
+
+    // productos generados al vuelo (no se guardan en memoria): el i-esimo tiene subtipo i % 6.
+    // Cuentas corrientes con comision 5.00 salvo una de cada tres, creditos: la mitad con deuda de 1000
+    static class StubProductService extends ProductBatchClient {
+        private static final ProductSubtype[] SUBTYPES = ProductSubtype.values();
+
+        final int total;
+        final Set<String> applied = ConcurrentHashMap.newKeySet();
+        final AtomicLong balanceDelta = new AtomicLong(); // en centavos
+        final AtomicInteger replayedAdjustments = new AtomicInteger();
+        final AtomicLong failAdjustmentsAfter = new AtomicLong(-1);
+        final List<String> requestedAfter = new CopyOnWriteArrayList<>();
+        volatile boolean ignoreSubtype; // listado que no filtra por subtipo
+
+        StubProductService(int total) {
+            super(null);
+            this.total = total;
+        }
+
+        @Override
+        public Flux<ProductDto> fetchPageAfter(ProductSubtype subtype, String afterId, int size) {
+            requestedAfter.add(subtype + ":" + afterId);
+            // ids con ceros a la izquierda: el orden por id es el mismo que por indice
+            int first = afterId == null ? 0 : indexOf(afterId) + 1;
+            while (!ignoreSubtype && first % SUBTYPES.length != subtype.ordinal()) {
+                first++;
+            }
+            int step = ignoreSubtype ? 1 : SUBTYPES.length;
+            List<ProductDto> result = new ArrayList<>(size);
+            for (long index = first; index < total && result.size() < size; index += step) {
+                result.add(product((int) index));
+            }
+            return Flux.fromIterable(result);
+        }
+
+        @Override
+        public Mono<Void> adjustBalances(List<BalanceAdjustment> adjustments) {
+            return Mono.fromRunnable(() -> {
+                for (BalanceAdjustment adjustment : adjustments) {
+                    if (applied.add(adjustment.getReference())) {
+                        balanceDelta.addAndGet(Math.round(adjustment.getAmount() * 100));
+                    } else {
+                        replayedAdjustments.incrementAndGet();
+                    }
+                }
+                // aplica y se pierde la respuesta: el peor caso para el reintento
+                long limit = failAdjustmentsAfter.get();
+                if (limit >= 0 && applied.size() >= limit) {
+                    throw new IllegalStateException("MS producto caido");
+                }
+            });
+        }
+
+        static ProductDto product(int index) {
+            ProductDto product = new ProductDto();
+            product.setId(String.format("product-%08d", index));
+            product.setClientId("client-" + index % 5_000);
+            product.setSubtype(SUBTYPES[index % SUBTYPES.length]);
+            if (product.getSubtype() == ProductSubtype.CURRENT_ACCOUNT) {
+                product.setMaintenanceFee(index / SUBTYPES.length % 3 == 0 ? null : 5.0);
+            } else {
+                product.setBalance(index / SUBTYPES.length % 2 == 0 ? -1000.0 : 500.0);
+            }
+            return product;
+        }
+
+        static int indexOf(String productId) {
+            return Integer.parseInt(productId.substring("product-".length()));
+        }
+
+        // productos de los subtipos que recorre el batch (cuentas corrientes y creditos)
+        long expectedProcessedProducts() {
+            long processed = 0;
+            for (int i = 0; i < total; i++) {
+                if (MonthlyBatchService.PHASES.contains(SUBTYPES[i % SUBTYPES.length])) {
+                    processed++;
+                }
+            }
+            return processed;
+        }
+
+        long expectedCharges() {
+            long charges = 0;
+            for (int i = 0; i < total; i++) {
+                if (expectedCents(i) != 0) {
+                    charges++;
+                }
+            }
+            return charges;
+        }
+
+        long expectedBalanceDelta() {
+            long cents = 0;
+            for (int i = 0; i < total; i++) {
+                cents -= expectedCents(i);
+            }
+            return cents;
+        }
+
+        private static long expectedCents(int index) {
+            ProductDto product = product(index);
+            return switch (product.getSubtype()) {
+                case CURRENT_ACCOUNT -> product.getMaintenanceFee() == null ? 0 : 500;
+                case PERSONAL_CREDIT -> product.getBalance() < 0 ? 1500 : 0;  // 1.5% de 1000
+                case BUSINESS_CREDIT -> product.getBalance() < 0 ? 1200 : 0;
+                case CREDIT_CARD -> product.getBalance() < 0 ? 3000 : 0;
+                default -> 0;
+            };
+        }
+    }
+
+    // mismo contrato que MongoBatchRunStore: guarda copias, asi lo que no paso por checkpoint se pierde en la caida
+    static class InMemoryBatchRunStore implements BatchRunStore {
+        final Map<String, BatchRun> runs = new ConcurrentHashMap<>();
+        final Map<String, Movement> movements = new ConcurrentHashMap<>();
+
+        @Override
+        public synchronized Mono<BatchRun> claim(String job, String period, String owner, Duration lease) {
+            String id = BatchRun.idOf(job, period);
+            BatchRun existing = runs.get(id);
+            Instant now = Instant.now();
+            if (existing == null) {
+                BatchRun run = new BatchRun();
+                run.setId(id);
+                run.setJob(job);
+                run.setPeriod(period);
+                run.setStatus(BatchStatus.RUNNING);
+                run.setOwner(owner);
+                run.setStartedAt(now);
+                run.setHeartbeatAt(now);
+                runs.put(id, copy(run));
+                return Mono.just(run);
+            }
+            boolean abandoned = existing.getStatus() == BatchStatus.RUNNING
+                    && existing.getHeartbeatAt().isBefore(now.minus(lease));
+            if (existing.getStatus() == BatchStatus.FAILED || abandoned) {
+                existing.setStatus(BatchStatus.RUNNING);
+                existing.setOwner(owner);
+                existing.setHeartbeatAt(now);
+                existing.setLastError(null);
+                return Mono.just(copy(existing));
+            }
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<BatchRun> checkpoint(BatchRun run) {
+            return save(run);
+        }
+
+        @Override
+        public Mono<BatchRun> complete(BatchRun run) {
+            run.setStatus(BatchStatus.COMPLETED);
+            run.setFinishedAt(Instant.now());
+            return save(run);
+        }
+
+        @Override
+        public Mono<BatchRun> fail(BatchRun run, String error) {
+            run.setStatus(BatchStatus.FAILED);
+            run.setLastError(error);
+            return save(run);
+        }
+
+        @Override
+        public Mono<BatchRun> find(String job, String period) {
+            return Mono.justOrEmpty(runs.get(BatchRun.idOf(job, period))).map(InMemoryBatchRunStore::copy);
+        }
+
+        @Override
+        public Mono<Long> insertMovements(List<Movement> batch) {
+            return Mono.fromCallable(() -> batch.stream()
+                    .filter(movement -> movements.putIfAbsent(movement.getId(), movement) == null)
+                    .count());
+        }
+
+        private synchronized Mono<BatchRun> save(BatchRun run) {
+            run.setHeartbeatAt(Instant.now());
+            runs.put(run.getId(), copy(run));
+            return Mono.just(run);
+        }
+
+        private static BatchRun copy(BatchRun run) {
+            BatchRun copy = new BatchRun();
+            copy.setId(run.getId());
+            copy.setJob(run.getJob());
+            copy.setPeriod(run.getPeriod());
+            copy.setStatus(run.getStatus());
+            copy.setOwner(run.getOwner());
+            copy.setPhase(run.getPhase());
+            copy.setLastProductId(run.getLastProductId());
+            copy.setProcessedProducts(run.getProcessedProducts());
+            copy.setCreatedMovements(run.getCreatedMovements());
+            copy.setStartedAt(run.getStartedAt());
+            copy.setHeartbeatAt(run.getHeartbeatAt());
+            copy.setFinishedAt(run.getFinishedAt());
+            copy.setLastError(run.getLastError());
+            return copy;
+        }
+    }
+}
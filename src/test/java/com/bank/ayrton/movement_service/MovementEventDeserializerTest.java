@@ -0,0 +1,69 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.config.KafkaConsumerConfig;
+import com.bank.ayrton.movement_service.config.MovementEventDeserializer;
+import com.bank.ayrton.movement_service.dto.BootcoinTransactionEvent;
+import com.bank.ayrton.movement_service.dto.TransferMethod;
+import com.bank.ayrton.movement_service.dto.YankiMovementEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MovementEventDeserializerTest {
+
+    private final MovementEventDeserializer deserializer = new MovementEventDeserializer();
+
+    @Test
+    void testReadsJsonByTopic() throws Exception {
+        YankiMovementEvent event = new YankiMovementEvent();
+        event.setFromCard("card-1");
+        event.setToCard("card-2");
+        event.setAmount(25.0);
+        byte[] json = new ObjectMapper().writeValueAsBytes(event);
+
+        Object result = deserializer.deserialize("yanki-transactions", new RecordHeaders(), json);
+
+        assertEquals(event, result);
+    }
+
+    @Test
+    void testReadsSmileWithContentTypeHeader() throws Exception {
+        BootcoinTransactionEvent event = new BootcoinTransactionEvent("tx-1", "w-1", "w-2", 10.5, TransferMethod.ACCOUNT);
+        byte[] smile = new SmileMapper().writeValueAsBytes(event);
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(MovementEventDeserializer.CONTENT_TYPE_HEADER,
+                MovementEventDeserializer.SMILE_CONTENT_TYPE.getBytes(StandardCharsets.UTF_8));
+
+        Object result = deserializer.deserialize("bootcoin.account.transfer", headers, smile);
+
+        assertEquals(event, result);
+    }
+
+    @Test
+    void testDetectsSmileWithoutHeaderThroughConfiguredChain() throws Exception {
+        BootcoinTransactionEvent event = new BootcoinTransactionEvent("tx-2", "w-3", "w-4", 1.0, TransferMethod.YANKI);
+        byte[] smile = new SmileMapper().writeValueAsBytes(event);
+
+        // el deserializador real del consumer: ErrorHandlingDeserializer envolviendo al de eventos
+        Deserializer<Object> configured = ((DefaultKafkaConsumerFactory<String, Object>) new KafkaConsumerConfig().consumerFactory())
+                .getValueDeserializer();
+
+        Object result = configured.deserialize("bootcoin.yanki.transfer", new RecordHeaders(), smile);
+        assertEquals(event, result);
+
+        // un evento corrupto no tumba el consumer: llega null y el error viaja en el header
+        RecordHeaders headers = new RecordHeaders();
+        assertNull(configured.deserialize("bootcoin.yanki.transfer", headers, new byte[]{':', ')', '\n', 0x7f}));
+        assertNotNull(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+    }
+}
@@ -0,0 +1,260 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import com.bank.ayrton.movement_service.config.HttpCacheProperties;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.cache.CacheAwareMovementWriter;
+import com.bank.ayrton.movement_service.service.cache.HttpCacheInstanceMonitor;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache.CachedResponse;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MovementHttpCacheTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 31);
+
+    private final MovementHttpCache httpCache =
+            new MovementHttpCache(new HttpCacheProperties(), null, JsonMapper.builder().findAndAddModules().build());
+
+    @Test
+    void testHotIdIsServedFromCacheUntilWritten() {
+        Movement movement = movement("m1", "product1", "client1");
+        AtomicInteger loads = new AtomicInteger();
+
+        CachedResponse first = httpCache.findResponse("m1", () -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return movement;
+        })).block();
+        CachedResponse second = httpCache.findResponse("m1", () -> Mono.error(new AssertionError("no deberia ir a Mongo"))).block();
+
+        assertEquals(1, loads.get());
+        assertEquals(first.etag(), second.etag());
+        assertTrue(first.etag().matches("\"[0-9a-f]{32}\""));
+        assertEquals(0.5, httpCache.stats().hitRatio());
+
+        // un PUT del movimiento saca la respuesta de la cache
+        movement.setAmount(250.0);
+        httpCache.onWritten(movement).block();
+        CachedResponse updated = httpCache.findResponse("m1", () -> Mono.just(movement)).block();
+        assertNotEquals(first.etag(), updated.etag());
+    }
+
+    @Test
+    void testLoadStartedBeforeWriteIsNotServedAfterIt() {
+        Movement old = movement("m1", "product1", "client1");
+        Movement updated = movement("m1", "product1", "client1");
+        updated.setAmount(250.0);
+
+        // el GET lee Mongo antes del PUT pero su respuesta llega despues de la invalidacion
+        Sinks.One<Movement> slowLoad = Sinks.one();
+        Sinks.One<CachedResponse> stale = Sinks.one();
+        httpCache.findResponse("m1", slowLoad::asMono).subscribe(stale::tryEmitValue);
+        httpCache.onWritten(updated).block();
+        slowLoad.tryEmitValue(old);
+        assertNotNull(stale.asMono().block());
+
+        AtomicInteger loads = new AtomicInteger();
+        CachedResponse next = httpCache.findResponse("m1", () -> Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return updated;
+        })).block();
+        assertEquals(1, loads.get());
+        assertNotEquals(stale.asMono().block().etag(), next.etag());
+
+        // la respuesta nueva si queda en cache
+        CachedResponse cached = httpCache.findResponse("m1", () -> Mono.error(new AssertionError("no deberia ir a Mongo"))).block();
+        assertEquals(next.etag(), cached.etag());
+    }
+
+    @Test
+    void testClusterModeRequiresRedisBackend() {
+        HttpCacheProperties properties = new HttpCacheProperties();
+        ClusterProperties cluster = new ClusterProperties();
+        cluster.setEnabled(true);
+        assertThrows(IllegalStateException.class, () -> MovementHttpCache.checkClusterMode(properties, cluster));
+
+        properties.setBackend(HttpCacheProperties.Backend.REDIS);
+        assertDoesNotThrow(() -> MovementHttpCache.checkClusterMode(properties, cluster));
+        properties.setBackend(HttpCacheProperties.Backend.LOCAL);
+        properties.setEnabled(false);
+        assertDoesNotThrow(() -> MovementHttpCache.checkClusterMode(properties, cluster));
+    }
+
+    @Test
+    void testLocalBackendSuspendsWithSeveralInstances() {
+        ServiceInstance self = instance("self");
+        ServiceInstance peer = instance("peer");
+        Registration registration = mock(Registration.class);
+        when(registration.getInstanceId()).thenReturn("self");
+        DiscoveryClient discovery = mock(DiscoveryClient.class);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("discoveryClient", discovery);
+        beans.addBean("registration", registration);
+
+        // hasta la primera consulta al registro no se emiten ETag de rango
+        HttpCacheInstanceMonitor monitor = new HttpCacheInstanceMonitor(new HttpCacheProperties(), httpCache,
+                beans.getBeanProvider(DiscoveryClient.class), beans.getBeanProvider(Registration.class), "movement-service");
+        StepVerifier.create(httpCache.clientTag("client1")).verifyComplete();
+
+        // solo esta instancia (aunque todavia no figure en el registro)
+        when(discovery.getInstances("movement-service")).thenReturn(List.of());
+        monitor.checkInstances();
+        String before = httpCache.clientTag("client1").block();
+        assertNotNull(before);
+        Movement movement = movement("m1", "product1", "client1");
+        httpCache.findResponse("m1", () -> Mono.just(movement)).block();
+
+        // otra instancia en el registro: sin ETag de rango y cada GET por id va a Mongo
+        when(discovery.getInstances("movement-service")).thenReturn(List.of(self, peer));
+        monitor.checkInstances();
+        StepVerifier.create(httpCache.clientTag("client1")).verifyComplete();
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            httpCache.findResponse("m1", () -> Mono.fromSupplier(() -> {
+                loads.incrementAndGet();
+                return movement;
+            })).block();
+        }
+        assertEquals(2, loads.get());
+
+        // vuelve a quedar una sola: las escrituras de la otra no movieron los contadores, el ETag de antes no sirve
+        when(discovery.getInstances("movement-service")).thenReturn(List.of(self));
+        monitor.checkInstances();
+        String after = httpCache.clientTag("client1").block();
+        assertNotNull(after);
+        assertNotEquals(before, after);
+        assertFalse(httpCache.notModified(before, after));
+    }
+
+    @Test
+    void testIfNoneMatchParsing() {
+        String etag = "\"abc\"";
+        assertTrue(httpCache.notModified("\"abc\"", etag));
+        assertTrue(httpCache.notModified("\"x\", W/\"abc\"", etag));
+        assertTrue(httpCache.notModified("*", etag));
+        assertFalse(httpCache.notModified("\"abcd\"", etag));
+        assertFalse(httpCache.notModified(null, etag));
+        assertEquals(3, httpCache.stats().notModified());
+    }
+
+    @Test
+    void testInsertThroughWriterChangesOnlyAffectedTags() {
+        MovementWriter delegate = mock(MovementWriter.class);
+        when(delegate.insert(any(Movement.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        MovementWriter writer = new CacheAwareMovementWriter(delegate, httpCache);
+
+        String productBefore = httpCache.productTag("product1", FROM, TO).block();
+        String clientBefore = httpCache.clientTag("client1").block();
+        String otherClientBefore = httpCache.clientTag("client2").block();
+        assertEquals(productBefore, httpCache.productTag("product1", FROM, TO).block());
+        assertNotEquals(productBefore, httpCache.productTag("product1", FROM, TO.plusDays(1)).block());
+
+        StepVerifier.create(writer.insert(movement("m2", "product1", "client1")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertNotEquals(productBefore, httpCache.productTag("product1", FROM, TO).block());
+        assertNotEquals(clientBefore, httpCache.clientTag("client1").block());
+        assertEquals(otherClientBefore, httpCache.clientTag("client2").block());
+    }
+
+    @Test
+    void testFailedInsertAllStillBumpsEveryAttemptedKey() {
+        // el primero quedo escrito y el segundo fallo: el llamador ve el error pero los dos productos se invalidan
+        MovementWriter delegate = mock(MovementWriter.class);
+        when(delegate.insertAll(anyList())).thenAnswer(invocation -> Flux.concat(
+                Flux.just(movement("m1", "product1", "client1")),
+                Flux.error(new IllegalStateException("duplicate key"))));
+        MovementWriter writer = new CacheAwareMovementWriter(delegate, httpCache);
+        String product1 = httpCache.productTag("product1", FROM, TO).block();
+        String product2 = httpCache.productTag("product2", FROM, TO).block();
+
+        StepVerifier.create(writer.insertAll(List.of(movement(null, "product1", "client1"), movement(null, "product2", "client2"))))
+                .expectErrorMessage("duplicate key")
+                .verify();
+
+        assertNotEquals(product1, httpCache.productTag("product1", FROM, TO).block());
+        assertNotEquals(product2, httpCache.productTag("product2", FROM, TO).block());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedBumpKeepsKeysWithoutTagUntilRetried() {
+        ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+        ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.just("t1"));
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.set(anyString(), anyString()))
+                .thenReturn(Mono.error(new IllegalStateException("redis caido")))
+                .thenReturn(Mono.just(true));
+        HttpCacheProperties properties = new HttpCacheProperties();
+        properties.setBackend(HttpCacheProperties.Backend.REDIS);
+        MovementHttpCache redisCache = new MovementHttpCache(properties, redisTemplate, JsonMapper.builder().findAndAddModules().build());
+        assertNotNull(redisCache.clientTag("client1").block());
+
+        // la escritura no falla por la cache, pero la clave no vuelve a tener ETag hasta que se mueva su watermark
+        redisCache.onWritten(movement(null, "product1", "client1")).block();
+        assertEquals(1, redisCache.stats().watermarkFailures());
+        assertEquals(2, redisCache.stats().pendingBumps());
+        StepVerifier.create(redisCache.clientTag("client1")).verifyComplete();
+        StepVerifier.create(redisCache.productTag("product1", FROM, TO)).verifyComplete();
+
+        redisCache.retryFailedBumps();
+        assertEquals(0, redisCache.stats().pendingBumps());
+        assertNotNull(redisCache.clientTag("client1").block());
+    }
+
+    @Test
+    void testDisabledCacheSendsNoRangeTags() {
+        HttpCacheProperties properties = new HttpCacheProperties();
+        properties.setEnabled(false);
+        MovementHttpCache disabled = new MovementHttpCache(properties, null, JsonMapper.builder().findAndAddModules().build());
+
+        StepVerifier.create(disabled.clientTag("client1")).verifyComplete();
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            disabled.findResponse("m1", () -> Mono.fromSupplier(() -> {
+                loads.incrementAndGet();
+                return movement("m1", "product1", "client1");
+            })).block();
+        }
+        assertEquals(2, loads.get());
+    }
+
+    private static ServiceInstance instance(String instanceId) {
+        ServiceInstance instance = mock(ServiceInstance.class);
+        when(instance.getInstanceId()).thenReturn(instanceId);
+        return instance;
+    }
+
+    private static Movement movement(String id, String productId, String clientId) {
+        return new Movement(id, clientId, productId, MovementType.DEPOSIT, 100.0, LocalDateTime.of(2025, 1, 15, 10, 0));
+    }
+}
@@ -0,0 +1,246 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.config.AdminProperties;
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties;
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties.RuleDefinition;
+import com.bank.ayrton.movement_service.controller.AdminSecretWebFilter;
+import com.bank.ayrton.movement_service.controller.RuleAdminController;
+import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.rules.MovementRuleEngine;
+import com.bank.ayrton.movement_service.service.rules.RuleKind;
+import com.bank.ayrton.movement_service.service.rules.RuleSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovementRuleEngineTest {
+
+    private static final int TODAY = 15;
+
+    private final MovementRuleEngine engine = new MovementRuleEngine(new ValidationRuleProperties(), null);
+
+    // recorre todas las combinaciones de subtipo, tipo de movimiento, tipo de cliente y datos del producto
+    // y compara el motor con la cadena de ifs original de save()/validarMovimiento
+    @Test
+    void testDefaultRulesMatchLegacyCodePath() {
+        List<ProductSubtype> subtypes = new ArrayList<>(Arrays.asList(ProductSubtype.values()));
+        subtypes.add(null);
+        List<MovementType> types = new ArrayList<>(Arrays.asList(MovementType.values()));
+        types.add(null);
+
+        int cases = 0;
+        for (ProductSubtype subtype : subtypes) {
+            for (MovementType type : types) {
+                for (String clientType : Arrays.asList("personal", "EMPRESARIAL", "vip", null)) {
+                    for (Integer allowedDay : Arrays.asList(null, TODAY, 3)) {
+                        for (Integer freeLimit : Arrays.asList(null, 2)) {
+                            for (Double creditLimit : Arrays.asList(null, 100.5, 500.0)) {
+                                for (long count : new long[]{0, 5}) {
+                                    ProductDto product = new ProductDto();
+                                    product.setId("p1");
+                                    product.setSubtype(subtype);
+                                    product.setAllowedMovementDay(allowedDay);
+                                    product.setFreeTransactionLimit(freeLimit);
+                                    product.setTransactionFee(1.5);
+                                    product.setCreditLimit(creditLimit);
+                                    ClientDto client = new ClientDto();
+                                    client.setType(clientType);
+
+                                    String expected = legacy(newMovement(type), product, client, count);
+                                    String actual = engine(newMovement(type), product, client, count);
+                                    assertEquals(expected, actual, "subtype=" + subtype + " type=" + type
+                                            + " client=" + clientType + " day=" + allowedDay + " free=" + freeLimit
+                                            + " credit=" + creditLimit + " count=" + count);
+                                    cases++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(cases > 1000);
+    }
+
+    @Test
+    void testMonthlyCountOnlyWhenFeeRuleApplies() {
+        assertTrue(engine.rulesFor(ProductSubtype.SAVINGS, MovementType.DEPOSIT).needsMonthlyCount());
+
+        engine.reload(List.of(new RuleDefinition(RuleKind.CREDIT_LIMIT, List.of(ProductSubtype.CREDIT_CARD),
+                List.of(MovementType.WITHDRAWAL), List.of(), "limite")));
+
+        assertFalse(engine.rulesFor(ProductSubtype.SAVINGS, MovementType.DEPOSIT).needsMonthlyCount());
+    }
+
+    @Test
+    void testReloadReplacesRulesAndKeepsOldOnInvalidDefinition() {
+        engine.reload(List.of(new RuleDefinition(RuleKind.CLIENT_TYPE, List.of(ProductSubtype.SAVINGS),
+                List.of(MovementType.WITHDRAWAL), List.of("empresarial"), "solo empresas")));
+
+        ClientDto personal = new ClientDto();
+        personal.setType("personal");
+        ProductDto savings = new ProductDto();
+        savings.setSubtype(ProductSubtype.SAVINGS);
+        RuleSet rules = engine.rulesFor(ProductSubtype.SAVINGS, MovementType.WITHDRAWAL);
+        assertEquals("solo empresas", rules.checkBeforeCount(newMovement(MovementType.WITHDRAWAL), savings, personal, TODAY));
+        assertNull(engine.rulesFor(ProductSubtype.SAVINGS, MovementType.DEPOSIT)
+                .checkBeforeCount(newMovement(MovementType.DEPOSIT), savings, personal, TODAY));
+
+        // CLIENT_TYPE sin tipos permitidos es invalida: se rechaza y siguen las reglas anteriores
+        assertThrows(IllegalArgumentException.class, () -> engine.reload(List.of(
+                new RuleDefinition(RuleKind.CLIENT_TYPE, List.of(), List.of(), List.of(), null))));
+        assertEquals(1, engine.getDefinitions().size());
+    }
+
+    @Test
+    void testAdminPutWithNullListsReturnsBadRequest() {
+        WebTestClient client = WebTestClient.bindToController(new RuleAdminController(engine)).build();
+
+        // allowedClientTypes en null (o una regla null) era un NPE y respondia 500
+        for (String body : List.of("[{\"kind\":\"CLIENT_TYPE\",\"allowedClientTypes\":null}]",
+                "[{\"kind\":\"CLIENT_TYPE\",\"allowedClientTypes\":[null]}]",
+                "[null]")) {
+            client.put().uri("/api/v1/movement/admin/rules")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+        assertEquals(ValidationRuleProperties.defaultRules().size(), engine.getDefinitions().size());
+
+        // sin productSubtypes ni movementTypes la regla aplica a todo
+        client.put().uri("/api/v1/movement/admin/rules")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"kind\":\"CLIENT_TYPE\",\"productSubtypes\":null,\"allowedClientTypes\":[\"personal\"]}]")
+                .exchange()
+                .expectStatus().isOk();
+        assertEquals(1, engine.getDefinitions().size());
+    }
+
+    @Test
+    void testInvalidRefreshKeepsCurrentRules() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("movement.validation.rules[0].kind", "CLIENT_TYPE");
+        MovementRuleEngine refreshed = new MovementRuleEngine(new ValidationRuleProperties(), environment);
+
+        // CLIENT_TYPE sin tipos permitidos: el listener no propaga la excepcion y siguen las reglas por defecto
+        refreshed.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("movement.validation.rules[0].kind")));
+        assertEquals(ValidationRuleProperties.defaultRules().size(), refreshed.getDefinitions().size());
+
+        environment.setProperty("movement.validation.rules[0].allowed-client-types", "personal");
+        refreshed.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("movement.validation.rules[0].allowed-client-types")));
+        assertEquals(1, refreshed.getDefinitions().size());
+    }
+
+    @Test
+    void testAdminRoutesRequireSecretAndRules() {
+        AdminProperties properties = new AdminProperties();
+        properties.setSecret("secreto-admin");
+        WebTestClient client = WebTestClient.bindToController(new RuleAdminController(engine))
+                .webFilter(new AdminSecretWebFilter(properties))
+                .build();
+        String body = "[{\"kind\":\"CLIENT_TYPE\",\"allowedClientTypes\":[\"personal\"]}]";
+
+        client.put().uri("/api/v1/movement/admin/rules")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.put().uri("/api/v1/movement/admin/rules")
+                .header(AdminSecretWebFilter.SECRET_HEADER, "otro")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isUnauthorized();
+        client.get().uri("/api/v1/movement/admin/rules")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        assertEquals(ValidationRuleProperties.defaultRules().size(), engine.getDefinitions().size());
+
+        // con el secreto, una lista vacia dejaria todos los movimientos sin validar: 400
+        client.put().uri("/api/v1/movement/admin/rules")
+                .header(AdminSecretWebFilter.SECRET_HEADER, "secreto-admin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isBadRequest();
+        assertEquals(ValidationRuleProperties.defaultRules().size(), engine.getDefinitions().size());
+
+        client.put().uri("/api/v1/movement/admin/rules")
+                .header(AdminSecretWebFilter.SECRET_HEADER, "secreto-admin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk();
+        assertEquals(1, engine.getDefinitions().size());
+
+        // sin secreto configurado no pasa nadie
+        WebTestClient closed = WebTestClient.bindToController(new RuleAdminController(engine))
+                .webFilter(new AdminSecretWebFilter(new AdminProperties()))
+                .build();
+        closed.get().uri("/api/v1/movement/admin/rules")
+                .header(AdminSecretWebFilter.SECRET_HEADER, "")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    private static Movement newMovement(MovementType type) {
+        Movement movement = new Movement();
+        movement.setType(type);
+        movement.setAmount(100.0);
+        return movement;
+    }
+
+    private String engine(Movement movement, ProductDto product, ClientDto client, long count) {
+        RuleSet rules = engine.rulesFor(product.getSubtype(), movement.getType());
+        String error = rules.checkBeforeCount(movement, product, client, TODAY);
+        if (error == null) {
+            error = rules.checkAfterCount(movement, product, client, count, TODAY);
+        }
+        return error != null ? error : "OK:" + movement.getAmount();
+    }
+
+    // copia de la logica anterior al motor de reglas
+    private static String legacy(Movement movement, ProductDto product, ClientDto client, long movementCount) {
+        if (product.getSubtype() == ProductSubtype.CREDIT_CARD &&
+                !"personal".equalsIgnoreCase(client.getType()) &&
+                !"empresarial".equalsIgnoreCase(client.getType())) {
+            return "Tipo de cliente no válido para tarjeta de crédito";
+        }
+        if (product.getSubtype() == ProductSubtype.FIXED_TERM && movement.getType() == MovementType.WITHDRAWAL) {
+            if (product.getAllowedMovementDay() != null && product.getAllowedMovementDay() != TODAY) {
+                return "Movimiento no permitido: solo se puede hacer el día permitido.";
+            }
+        }
+        if (product.getFreeTransactionLimit() != null && product.getTransactionFee() != null &&
+                movementCount >= product.getFreeTransactionLimit()) {
+            movement.setAmount(movement.getAmount() + product.getTransactionFee());
+        }
+        if ((product.getSubtype() == ProductSubtype.PERSONAL_CREDIT ||
+                product.getSubtype() == ProductSubtype.BUSINESS_CREDIT ||
+                product.getSubtype() == ProductSubtype.CREDIT_CARD) &&
+                movement.getType() == MovementType.WITHDRAWAL) {
+            if (product.getCreditLimit() != null && movement.getAmount() > product.getCreditLimit()) {
+                return "El monto excede el límite de crédito.";
+            }
+        }
+        return "OK:" + movement.getAmount();
+    }
+}
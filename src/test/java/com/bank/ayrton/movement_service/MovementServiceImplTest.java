@@ -1,24 +1,44 @@
 package com.bank.ayrton.movement_service;
 
 import com.bank.ayrton.movement_service.api.movement.MovementRepository;
+import com.bank.ayrton.movement_service.config.HttpCacheProperties;
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties;
+import com.bank.ayrton.movement_service.config.VelocityProperties;
 import com.bank.ayrton.movement_service.dto.ClientDto;
 import com.bank.ayrton.movement_service.entity.Movement;
 import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.bank.ayrton.movement_service.service.movement.DirectMovementWriter;
 import com.bank.ayrton.movement_service.service.movement.MovementServiceImpl;
+import com.bank.ayrton.movement_service.service.rules.MovementRuleEngine;
+import com.bank.ayrton.movement_service.service.velocity.VelocityCheckService;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +57,57 @@ public class MovementServiceImplTest {
         productWebClient = mock(WebClient.class, RETURNS_DEEP_STUBS);
         redisTemplate = mock(ReactiveRedisTemplate.class);
 
-        service = new MovementServiceImpl(repository, clientWebClient, productWebClient, redisTemplate); // ← AGREGA EL QUINTO ARGUMENTO
+        VelocityCheckService velocityCheckService = new VelocityCheckService(new VelocityProperties(), null); // sin reglas
+
+        service = new MovementServiceImpl(repository, clientWebClient, productWebClient, redisTemplate,
+                velocityCheckService, new DirectMovementWriter(repository),
+                new MovementRuleEngine(new ValidationRuleProperties(), null),
+                new MovementHttpCache(new HttpCacheProperties(), null, JsonMapper.builder().findAndAddModules().build()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransferCountsForClientVelocityRules() {
+        // MS producto simulado: GET devuelve el producto con saldo de sobra, PUT cuenta la actualizacion
+        AtomicInteger puts = new AtomicInteger();
+        WebClient products = WebClient.builder()
+                .exchangeFunction(request -> {
+                    if (request.method() == HttpMethod.PUT) {
+                        puts.incrementAndGet();
+                        return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                    }
+                    String id = request.url().getPath().substring("/api/v1/product/".length());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"id\":\"" + id + "\",\"clientId\":\"client-" + id + "\",\"balance\":1000.0}")
+                            .build());
+                })
+                .build();
+        ReactiveValueOperations<String, ClientDto> clients = mock(ReactiveValueOperations.class);
+        ClientDto client = new ClientDto();
+        client.setId("client-from");
+        when(redisTemplate.opsForValue()).thenReturn(clients);
+        when(clients.get("client-from")).thenReturn(Mono.just(client));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Movement>>getArgument(0)));
+
+        VelocityProperties.Rule withdrawals = new VelocityProperties.Rule();
+        withdrawals.setMovementType(MovementType.WITHDRAWAL);
+        withdrawals.setWindow(Duration.ofMinutes(10));
+        withdrawals.setMaxCount(2L);
+        VelocityProperties velocity = new VelocityProperties();
+        velocity.setRules(List.of(withdrawals));
+        MovementServiceImpl guarded = new MovementServiceImpl(repository, clientWebClient, products, redisTemplate,
+                new VelocityCheckService(velocity, null), new DirectMovementWriter(repository),
+                new MovementRuleEngine(new ValidationRuleProperties(), null),
+                new MovementHttpCache(new HttpCacheProperties(), null, JsonMapper.builder().findAndAddModules().build()));
+
+        StepVerifier.create(guarded.transfer("from", "to", 10.0)).verifyComplete();
+        StepVerifier.create(guarded.transfer("from", "to", 10.0)).verifyComplete();
+        // la tercera supera la regla de retiros del cliente origen y no llega a tocar los saldos
+        StepVerifier.create(guarded.transfer("from", "to", 10.0))
+                .expectErrorSatisfies(ex -> assertEquals(429, ((ResponseStatusException) ex).getStatusCode().value()))
+                .verify();
+        assertEquals(4, puts.get());
     }
 
     @Test
@@ -66,6 +136,8 @@ public class MovementServiceImplTest {
 
     @Test
     void testDelete() {
+        Movement movement = new Movement("456", "client1", "product1", MovementType.DEPOSIT, 100.0, LocalDateTime.now());
+        when(repository.findById("456")).thenReturn(Mono.just(movement));
         when(repository.deleteById("456")).thenReturn(Mono.empty());
 
         StepVerifier.create(service.delete("456"))
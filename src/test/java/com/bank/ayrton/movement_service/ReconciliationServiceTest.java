@@ -0,0 +1,351 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.config.ReconciliationProperties;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.dto.ProductMovementSum;
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy;
+import com.bank.ayrton.movement_service.dto.ReconciliationDiscrepancy.Kind;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.batch.ProductBatchClient;
+import com.bank.ayrton.movement_service.service.reconciliation.ReconciliationService;
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReconciliationServiceTest {
+
+    @Test
+    void testMergeJoinReportsMismatchesAndUnknownProducts() {
+        Flux<ProductMovementSum> sums = Flux.just(
+                new ProductMovementSum("a", 100.0, 3L),
+                new ProductMovementSum("b", 50.0, 2L),
+                new ProductMovementSum("x", 10.0, 1L));
+        Flux<ProductDto> products = Flux.just(
+                product("a", 100.004),   // dentro de la tolerancia
+                product("b", 80.0),
+                product("c", 5.0),       // saldo sin movimientos
+                product("d", 0.0));
+
+        StepVerifier.create(ReconciliationService.mergeJoin(sums, products, 0.01))
+                .assertNext(discrepancy -> {
+                    assertEquals("b", discrepancy.getProductId());
+                    assertEquals(Kind.BALANCE_MISMATCH, discrepancy.getKind());
+                    assertEquals(30.0, discrepancy.getDifference());
+                })
+                .assertNext(discrepancy -> {
+                    assertEquals("c", discrepancy.getProductId());
+                    assertEquals(0L, discrepancy.getMovements());
+                    assertEquals(5.0, discrepancy.getDifference());
+                })
+                .assertNext(discrepancy -> {
+                    assertEquals("x", discrepancy.getProductId());
+                    assertEquals(Kind.UNKNOWN_PRODUCT, discrepancy.getKind());
+                    assertNull(discrepancy.getBalance());
+                })
+                .verifyComplete();
+    }
+
+    // fuera de mvn test (tarda varios segundos): ./mvnw test -Dgroups=large -Dtest.excludedGroups=
+    @Test
+    @Tag("large")
+    void testMergeJoinStreamsLargeInputs() {
+        // un millon de productos generados al vuelo de cada lado; solo descuadra uno de cada 100k
+        int count = 1_000_000;
+        Flux<ProductMovementSum> sums = Flux.range(0, count)
+                .map(i -> new ProductMovementSum(id(i), 10.0, 1L));
+        Flux<ProductDto> products = Flux.range(0, count)
+                .map(i -> product(id(i), i % 100_000 == 0 ? 12.5 : 10.0));
+
+        StepVerifier.create(ReconciliationService.mergeJoin(sums, products, 0.01).count())
+                .expectNext(10L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testAggregationSignsEachMovementType() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("movements"), eq(ProductMovementSum.class)))
+                .thenReturn(Flux.empty());
+        ReconciliationService service = new ReconciliationService(mongoTemplate, keysetClient(new ArrayList<>()),
+                mock(MovementWriter.class), new ReconciliationProperties());
+
+        StepVerifier.create(service.reconcile(false)).verifyComplete();
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq("movements"), eq(ProductMovementSum.class));
+        List<Document> pipeline = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        Document group = pipeline.get(0).get("$group", Document.class);
+        assertEquals("$productId", group.get("_id"));
+        Object signedAmount = group.get("net", Document.class).get("$sum");
+
+        // la expresion del $group evaluada para cada tipo con un monto de 10 (los pagos a terceros ya traen signo)
+        Map<MovementType, Double> expected = Map.of(
+                MovementType.DEPOSIT, 10.0,
+                MovementType.WITHDRAWAL, -10.0,
+                MovementType.PAYMENT, 0.0,
+                MovementType.CONSUMPTION, 0.0,
+                MovementType.THIRD_PARTY_PAYMENT_SENT, 10.0,
+                MovementType.THIRD_PARTY_PAYMENT_RECEIVED, 10.0,
+                MovementType.MAINTENANCE_FEE, -10.0,
+                MovementType.INTEREST_CHARGE, -10.0,
+                MovementType.RECONCILIATION_ADJUSTMENT, 10.0);
+        assertEquals(MovementType.values().length, expected.size(), "falta el signo de algun tipo nuevo");
+        for (MovementType type : MovementType.values()) {
+            Document movement = new Document("type", type.name()).append("amount", 10.0);
+            assertEquals(expected.get(type), ((Number) evaluate(signedAmount, movement)).doubleValue(), type.name());
+        }
+    }
+
+    @Test
+    void testCorrectWithoutOpeningBalancesIsRejected() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        MovementWriter writer = mock(MovementWriter.class);
+        ReconciliationService service = new ReconciliationService(mongoTemplate, new ProductBatchClient(null), writer,
+                new ReconciliationProperties());
+
+        StepVerifier.create(service.reconcile(true))
+                .expectErrorSatisfies(ex -> {
+                    assertInstanceOf(ResponseStatusException.class, ex);
+                    assertEquals(409, ((ResponseStatusException) ex).getStatusCode().value());
+                })
+                .verify();
+        verifyNoInteractions(mongoTemplate, writer);
+    }
+
+    @Test
+    void testReconcileWritesSignedCorrections() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        stubSums(mongoTemplate, new TreeMap<>(Map.of(
+                "p1", new ProductMovementSum("p1", 200.0, 4L),
+                "p2", new ProductMovementSum("p2", 100.0, 2L))));
+
+        // 3 productos en paginas de 2, ordenados por id
+        ProductBatchClient productClient = keysetClient(new ArrayList<>(
+                List.of(product("p1", 150.0), product("p2", 100.0), product("p3", 20.0))));
+
+        MovementWriter writer = mock(MovementWriter.class);
+        when(writer.insert(any(Movement.class))).thenAnswer(invocation -> {
+            Movement movement = invocation.getArgument(0);
+            movement.setId("adj-" + movement.getProductId());
+            return Mono.just(movement);
+        });
+
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setPageSize(2);
+        properties.setOpeningBalancesRecorded(true);
+        properties.setRecheckDelay(Duration.ZERO);
+        ReconciliationService service = new ReconciliationService(mongoTemplate, productClient, writer, properties);
+
+        StepVerifier.create(service.reconcile(true))
+                .assertNext(discrepancy -> {
+                    assertEquals("p1", discrepancy.getProductId());
+                    assertEquals(-50.0, discrepancy.getDifference());
+                    assertEquals("adj-p1", discrepancy.getCorrectionId());
+                })
+                .assertNext(discrepancy -> {
+                    assertEquals("p3", discrepancy.getProductId());
+                    assertEquals("adj-p3", discrepancy.getCorrectionId());
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<Movement> captor = ArgumentCaptor.forClass(Movement.class);
+        verify(writer, times(2)).insert(captor.capture());
+        Movement correction = captor.getAllValues().get(0);
+        assertEquals(MovementType.RECONCILIATION_ADJUSTMENT, correction.getType());
+        assertEquals(-50.0, correction.getAmount());
+        assertEquals("client-p1", correction.getClientId());
+    }
+
+    @Test
+    void testInFlightMovementIsNotCorrected() {
+        // p1 ya tiene el PUT del retiro (150) pero el movimiento de -50 todavia no llego al recorrer los movimientos
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        Map<String, ProductMovementSum> sums = new TreeMap<>(Map.of(
+                "p1", new ProductMovementSum("p1", 200.0, 4L),
+                "p2", new ProductMovementSum("p2", 100.0, 2L)));
+        stubSums(mongoTemplate, sums);
+        List<ProductDto> catalog = new ArrayList<>(List.of(product("p1", 150.0), product("p2", 80.0)));
+        ProductBatchClient keyset = keysetClient(catalog);
+        ProductBatchClient productClient = new ProductBatchClient(null) {
+            @Override
+            public Flux<ProductDto> fetchPageAfter(ProductSubtype subtype, String afterId, int size) {
+                return keyset.fetchPageAfter(subtype, afterId, size);
+            }
+
+            @Override
+            public Mono<ProductDto> fetchProduct(String id) {
+                // al releer, el movimiento de p1 ya llego; p2 sigue descuadrado
+                sums.put("p1", new ProductMovementSum("p1", 150.0, 5L));
+                return keyset.fetchProduct(id);
+            }
+        };
+        MovementWriter writer = mock(MovementWriter.class);
+        when(writer.insert(any(Movement.class))).thenAnswer(invocation -> {
+            Movement movement = invocation.getArgument(0);
+            movement.setId("adj-" + movement.getProductId());
+            return Mono.just(movement);
+        });
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setOpeningBalancesRecorded(true);
+        properties.setRecheckDelay(Duration.ZERO);
+        ReconciliationService service = new ReconciliationService(mongoTemplate, productClient, writer, properties);
+
+        StepVerifier.create(service.reconcile(true))
+                .assertNext(discrepancy -> {
+                    assertEquals("p1", discrepancy.getProductId());
+                    assertNull(discrepancy.getCorrectionId());
+                })
+                .assertNext(discrepancy -> {
+                    assertEquals("p2", discrepancy.getProductId());
+                    assertEquals("adj-p2", discrepancy.getCorrectionId());
+                })
+                .verifyComplete();
+        ArgumentCaptor<Movement> captor = ArgumentCaptor.forClass(Movement.class);
+        verify(writer).insert(captor.capture());
+        assertEquals("p2", captor.getValue().getProductId());
+        assertEquals(-20.0, captor.getValue().getAmount());
+    }
+
+    @Test
+    void testProductCreatedDuringRunDoesNotShiftPages() {
+        ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("movements"), eq(ProductMovementSum.class)))
+                .thenReturn(Flux.just(new ProductMovementSum("p2", 100.0, 1L), new ProductMovementSum("p3", 20.0, 1L),
+                        new ProductMovementSum("p4", 40.0, 1L)));
+
+        // despues de la primera pagina se crea p0: con page/size la segunda pagina repetiria p2
+        List<ProductDto> catalog = new ArrayList<>(
+                List.of(product("p2", 100.0), product("p3", 20.0), product("p4", 40.0)));
+        List<String> requestedAfter = new ArrayList<>();
+        ProductBatchClient productClient = new ProductBatchClient(null) {
+            @Override
+            public Flux<ProductDto> fetchPageAfter(ProductSubtype subtype, String afterId, int size) {
+                requestedAfter.add(afterId);
+                Flux<ProductDto> page = keysetPage(catalog, afterId, size);
+                if (afterId == null) {
+                    catalog.add(0, product("p0", 0.0));
+                }
+                return page;
+            }
+        };
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setPageSize(2);
+        ReconciliationService service = new ReconciliationService(mongoTemplate, productClient, mock(MovementWriter.class), properties);
+
+        StepVerifier.create(service.reconcile(false)).verifyComplete();
+        assertEquals(Arrays.asList(null, "p3"), requestedAfter);
+    }
+
+    @Test
+    void testMergeJoinFailsOnRepeatedProductId() {
+        Flux<ProductMovementSum> sums = Flux.just(new ProductMovementSum("a", 100.0, 1L));
+        Flux<ProductDto> products = Flux.just(product("a", 100.0), product("b", 10.0), product("b", 10.0));
+
+        // la copia de b nunca sale como descuadre: la corrida se corta al leerla
+        StepVerifier.create(ReconciliationService.mergeJoin(sums, products, 0.01))
+                .expectErrorSatisfies(ex -> {
+                    assertInstanceOf(IllegalStateException.class, ex);
+                    assertTrue(ex.getMessage().contains("productos"));
+                })
+                .verify();
+
+        StepVerifier.create(ReconciliationService.mergeJoin(
+                        Flux.just(new ProductMovementSum("b", 1.0, 1L), new ProductMovementSum("a", 1.0, 1L)),
+                        Flux.just(product("a", 0.0), product("b", 1.0)), 0.01))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    // MS producto con keyset sobre una lista ordenada por id
+    private static ProductBatchClient keysetClient(List<ProductDto> catalog) {
+        return new ProductBatchClient(null) {
+            @Override
+            public Flux<ProductDto> fetchPageAfter(ProductSubtype subtype, String afterId, int size) {
+                return keysetPage(catalog, afterId, size);
+            }
+
+            @Override
+            public Mono<ProductDto> fetchProduct(String id) {
+                return Mono.justOrEmpty(catalog.stream().filter(product -> product.getId().equals(id)).findFirst());
+            }
+        };
+    }
+
+    // agregacion simulada: sin $match todas las sumas en orden de id, con $match solo la del producto pedido
+    private static void stubSums(ReactiveMongoTemplate mongoTemplate, Map<String, ProductMovementSum> sums) {
+        when(mongoTemplate.getCollectionName(Movement.class)).thenReturn("movements");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("movements"), eq(ProductMovementSum.class)))
+                .thenAnswer(invocation -> {
+                    Document first = invocation.<Aggregation>getArgument(0).toPipeline(Aggregation.DEFAULT_CONTEXT).get(0);
+                    Document match = first.get("$match", Document.class);
+                    return match == null ? Flux.fromIterable(List.copyOf(sums.values()))
+                            : Mono.justOrEmpty(sums.get(match.getString("productId"))).flux();
+                });
+    }
+
+    private static Flux<ProductDto> keysetPage(List<ProductDto> catalog, String afterId, int size) {
+        return Flux.fromIterable(catalog.stream()
+                .filter(product -> afterId == null || product.getId().compareTo(afterId) > 0)
+                .limit(size)
+                .toList());
+    }
+
+    // evaluador minimo de los operadores que usa el $group ($cond, $in, $multiply y referencias a campos)
+    private static Object evaluate(Object expression, Document movement) {
+        if (expression instanceof String field && field.startsWith("$")) {
+            return movement.get(field.substring(1));
+        }
+        if (!(expression instanceof Document document)) {
+            return expression;
+        }
+        String operator = document.keySet().iterator().next();
+        List<?> args = document.getList(operator, Object.class);
+        return switch (operator) {
+            case "$cond" -> Boolean.TRUE.equals(evaluate(args.get(0), movement))
+                    ? evaluate(args.get(1), movement) : evaluate(args.get(2), movement);
+            case "$in" -> ((List<?>) evaluate(args.get(1), movement)).contains(evaluate(args.get(0), movement));
+            case "$multiply" -> ((Number) evaluate(args.get(0), movement)).doubleValue()
+                    * ((Number) evaluate(args.get(1), movement)).doubleValue();
+            default -> throw new IllegalArgumentException("operador no soportado: " + operator);
+        };
+    }
+
+    private static String id(int index) {
+        return String.format("product-%08d", index); // mismo orden alfabetico que numerico
+    }
+
+    private static ProductDto product(String id, double balance) {
+        ProductDto product = new ProductDto();
+        product.setId(id);
+        product.setClientId("client-" + id);
+        product.setBalance(balance);
+        return product;
+    }
+}
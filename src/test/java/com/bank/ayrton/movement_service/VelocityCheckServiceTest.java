@@ -0,0 +1,288 @@
+package com.bank.ayrton.movement_service;
+
+import com.bank.ayrton.movement_service.config.ClusterProperties;
+import com.bank.ayrton.movement_service.config.VelocityProperties;
+import com.bank.ayrton.movement_service.dto.ClientSubtype;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.velocity.LocalVelocityWindowStore;
+import com.bank.ayrton.movement_service.service.velocity.VelocityCheckService;
+import com.bank.ayrton.movement_service.service.velocity.VelocityRule;
+import com.bank.ayrton.movement_service.service.velocity.VelocityScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VelocityCheckServiceTest {
+
+    private static final Mono<String> OK = Mono.just("ok");
+
+    private MutableClock clock;
+    private VelocityCheckService service;
+
+    @BeforeEach
+    void setup() {
+        VelocityProperties.Rule withdrawals = new VelocityProperties.Rule();
+        withdrawals.setMovementType(MovementType.WITHDRAWAL);
+        withdrawals.setScope(VelocityScope.CLIENT);
+        withdrawals.setWindow(Duration.ofMinutes(5));
+        withdrawals.setMaxCount(3L);
+
+        VelocityProperties.Rule vipAmount = new VelocityProperties.Rule();
+        vipAmount.setMovementType(MovementType.DEPOSIT);
+        vipAmount.setClientSubtype(ClientSubtype.VIP);
+        vipAmount.setScope(VelocityScope.PRODUCT);
+        vipAmount.setWindow(Duration.ofMinutes(1));
+        vipAmount.setMaxAmount(1000.0);
+
+        VelocityProperties properties = new VelocityProperties();
+        properties.setRules(List.of(withdrawals, vipAmount));
+
+        clock = new MutableClock(Instant.parse("2025-06-01T10:00:00Z"));
+        service = new VelocityCheckService(properties, null, clock);
+    }
+
+    @Test
+    void testRejectsAfterMaxCountWithinWindow() {
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(service.guard("c1", "p1", MovementType.WITHDRAWAL, ClientSubtype.STANDARD, 10.0, OK))
+                    .expectNext("ok")
+                    .verifyComplete();
+        }
+        StepVerifier.create(service.guard("c1", "p2", MovementType.WITHDRAWAL, ClientSubtype.STANDARD, 10.0, OK))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        // otro cliente tiene su propia ventana
+        StepVerifier.create(service.guard("c2", "p1", MovementType.WITHDRAWAL, ClientSubtype.STANDARD, 10.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void testWindowSlides() {
+        for (int i = 0; i < 3; i++) {
+            service.guard("c1", "p1", MovementType.WITHDRAWAL, ClientSubtype.PYME, 10.0, OK).block();
+        }
+        clock.advance(Duration.ofMinutes(6));
+
+        StepVerifier.create(service.guard("c1", "p1", MovementType.WITHDRAWAL, ClientSubtype.PYME, 10.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void testAmountRuleOnlyForConfiguredSubtype() {
+        StepVerifier.create(service.guard("c1", "p1", MovementType.DEPOSIT, ClientSubtype.VIP, 800.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+        StepVerifier.create(service.guard("c9", "p1", MovementType.DEPOSIT, ClientSubtype.VIP, 300.0, OK))
+                .expectError(ResponseStatusException.class)
+                .verify();
+
+        // la regla es solo para VIP
+        StepVerifier.create(service.guard("c1", "p1", MovementType.DEPOSIT, ClientSubtype.STANDARD, 5000.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void testFailedOperationDoesNotConsumeBudget() {
+        // movimientos que no se graban (ej. saldo insuficiente) devuelven su cupo
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(service.guard("c1", "p1", MovementType.WITHDRAWAL, ClientSubtype.STANDARD, 10.0,
+                            Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Saldo insuficiente"))))
+                    .expectErrorSatisfies(ex -> assertEquals(HttpStatus.BAD_REQUEST, ((ResponseStatusException) ex).getStatusCode()))
+                    .verify();
+        }
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(service.guard("c1", "p1", MovementType.WITHDRAWAL, ClientSubtype.STANDARD, 10.0, OK))
+                    .expectNext("ok")
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void testRejectionByLaterRuleReleasesEarlierOnes() {
+        VelocityProperties.Rule count = new VelocityProperties.Rule();
+        count.setMovementType(MovementType.DEPOSIT);
+        count.setScope(VelocityScope.CLIENT);
+        count.setWindow(Duration.ofMinutes(5));
+        count.setMaxCount(2L);
+
+        VelocityProperties.Rule amount = new VelocityProperties.Rule();
+        amount.setMovementType(MovementType.DEPOSIT);
+        amount.setScope(VelocityScope.PRODUCT);
+        amount.setWindow(Duration.ofMinutes(5));
+        amount.setMaxAmount(100.0);
+
+        VelocityProperties properties = new VelocityProperties();
+        properties.setRules(List.of(count, amount));
+        VelocityCheckService twoRules = new VelocityCheckService(properties, null, clock);
+
+        // la regla de monto rechaza despues de que la de cantidad ya habia reservado
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(twoRules.guard("c1", "p1", MovementType.DEPOSIT, ClientSubtype.STANDARD, 500.0, OK))
+                    .expectErrorSatisfies(ex -> assertEquals(HttpStatus.TOO_MANY_REQUESTS, ((ResponseStatusException) ex).getStatusCode()))
+                    .verify();
+        }
+        StepVerifier.create(twoRules.guard("c1", "p2", MovementType.DEPOSIT, ClientSubtype.STANDARD, 50.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+        StepVerifier.create(twoRules.guard("c1", "p3", MovementType.DEPOSIT, ClientSubtype.STANDARD, 50.0, OK))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void testClusterModeRequiresRedisForClientRules() {
+        VelocityProperties.Rule perClient = new VelocityProperties.Rule();
+        perClient.setMovementType(MovementType.WITHDRAWAL);
+        perClient.setScope(VelocityScope.CLIENT);
+        perClient.setMaxCount(3L);
+        VelocityProperties.Rule perProduct = new VelocityProperties.Rule();
+        perProduct.setMovementType(MovementType.DEPOSIT);
+        perProduct.setScope(VelocityScope.PRODUCT);
+        perProduct.setMaxCount(3L);
+
+        VelocityProperties properties = new VelocityProperties();
+        properties.setRules(List.of(perProduct));
+        ClusterProperties cluster = new ClusterProperties();
+        cluster.setEnabled(true);
+
+        // las reglas por producto funcionan en memoria: cada producto se procesa en su instancia duena
+        VelocityCheckService.checkClusterMode(properties, cluster);
+
+        properties.setRules(List.of(perProduct, perClient));
+        assertThrows(IllegalStateException.class, () -> VelocityCheckService.checkClusterMode(properties, cluster));
+        properties.setBackend(VelocityProperties.Backend.REDIS);
+        VelocityCheckService.checkClusterMode(properties, cluster);
+    }
+
+    @Test
+    void testConcurrentRecordsNeverExceedLimit() throws Exception {
+        VelocityRule rule = new VelocityRule(0, VelocityScope.CLIENT, 300_000, 50_000, 1_000, 5_000_000);
+        LocalVelocityWindowStore store = new LocalVelocityWindowStore(List.of(rule), 6);
+        long now = clock.millis();
+        int threads = 8;
+        AtomicInteger allowed = new AtomicInteger();
+        AtomicLong allowedCents = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        long cents = 1_000 + i % 7 * 1_000;
+                        if (store.record(rule, "c1", cents, now)) {
+                            allowed.incrementAndGet();
+                            allowedCents.addAndGet(cents);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // con el check-then-increment separado varios hilos pasaban juntos con el ultimo lugar
+        assertTrue(allowed.get() <= 1_000, "permitidos " + allowed.get());
+        assertTrue(allowedCents.get() <= 5_000_000, "monto permitido " + allowedCents.get());
+        assertFalse(store.record(rule, "c1", 1_000_000, now));
+    }
+
+    @Test
+    void testEvictionDoesNotLoseConcurrentRecords() throws Exception {
+        // un movimiento por clave; el anillo recien creado todavia no tiene epoca y evictIdle lo ve inactivo
+        VelocityRule rule = new VelocityRule(0, VelocityScope.CLIENT, 300_000, 50_000, 1, Long.MAX_VALUE);
+        LocalVelocityWindowStore store = new LocalVelocityWindowStore(List.of(rule), 6);
+        long now = clock.millis();
+        int threads = 4;
+        int keysPerThread = 50_000;
+        AtomicBoolean recording = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<?> evictor = executor.submit(() -> {
+                while (recording.get()) {
+                    store.evictIdle(now);
+                }
+            });
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                recorders.add(executor.submit(() -> {
+                    for (int i = 0; i < keysPerThread; i++) {
+                        assertTrue(store.record(rule, thread + "-" + i, 100, now));
+                    }
+                }));
+            }
+            for (Future<?> recorder : recorders) {
+                recorder.get();
+            }
+            recording.set(false);
+            evictor.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        // cada clave ya uso su unico lugar de la ventana: un segundo movimiento se rechaza en todas
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < keysPerThread; i++) {
+                assertFalse(store.record(rule, t + "-" + i, 100, now), "se perdio el registro de " + t + "-" + i);
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import com.bank.ayrton.movement_service.config.HttpCacheProperties;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.cache.MovementHttpCache;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// costo por peticion del lado de la aplicacion (sin Mongo ni red): GET por id serializando y hasheando cada vez
+// (cacheSize=0) vs respuesta ya serializada, y el 304 del rango por producto solo con el watermark.
+// ids con distribucion sesgada (20% de los ids reciben 80% de las lecturas); el hit ratio se imprime al final
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class HttpCacheBenchmark {
+
+    private static final int IDS = 20_000;
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 31);
+
+    @Param({"0", "4096"})
+    public int cacheSize;
+
+    private MovementHttpCache httpCache;
+    private Movement[] movements;
+    private String productTag;
+
+    @Setup
+    public void setup() {
+        HttpCacheProperties properties = new HttpCacheProperties();
+        properties.setResponseCacheSize(cacheSize);
+        httpCache = new MovementHttpCache(properties, null, JsonMapper.builder().findAndAddModules().build());
+        movements = new Movement[IDS];
+        for (int i = 0; i < IDS; i++) {
+            movements[i] = new Movement(String.format("6650c1f2a9d3e41b2c%06d", i), "client-" + i % 500,
+                    "product-" + i % 2_000, MovementType.DEPOSIT, 100.0 + i, LocalDateTime.of(2025, 1, 15, 10, 0));
+        }
+        productTag = httpCache.productTag("product-1", FROM, TO).block();
+    }
+
+    @Benchmark
+    public Object findById() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(10) < 8 ? random.nextInt(IDS / 5) : random.nextInt(IDS);
+        Movement movement = movements[index];
+        return httpCache.findResponse(movement.getId(), () -> Mono.just(movement)).block();
+    }
+
+    @Benchmark
+    public boolean conditionalProductRange() {
+        return httpCache.notModified(productTag, httpCache.productTag("product-1", FROM, TO).block());
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%ncacheSize=%d: %s%n", cacheSize, httpCache.stats());
+    }
+}
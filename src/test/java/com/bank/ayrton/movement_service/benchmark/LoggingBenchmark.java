@@ -0,0 +1,113 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.bank.ayrton.movement_service.config.logging.SamplingTurboFilter;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// tiempo que el hilo de la peticion (event loop) pasa logueando los INFO de un save():
+// "before" = appender sincrono y toString del movimiento completo, "after" = async + muestreo + campos clave
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"before", "async", "after"})
+    public String pipeline;
+
+    private LoggerContext context;
+    private Logger log;
+    private Movement movement;
+
+    @Setup
+    public void setup() {
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("{\"@timestamp\":\"%d\",\"log.level\":\"%level\",\"log.logger\":\"%logger\","
+                + "\"traceId\":\"%X{traceId}\",\"correlationId\":\"%X{correlationId}\",\"message\":\"%msg\"}%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if (!"before".equals(pipeline)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+        if ("after".equals(pipeline)) {
+            SamplingTurboFilter sampling = new SamplingTurboFilter();
+            sampling.setContext(context);
+            // mismo logger que logback-spring.xml: el filtro compara nombres exactos, no prefijos de paquete
+            sampling.addSample("com.bank.ayrton.movement_service.service.movement.MovementServiceImpl=0.1");
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+        log = context.getLogger("com.bank.ayrton.movement_service.service.movement.MovementServiceImpl");
+
+        movement = new Movement("6650c1f2a9d3e41b2c7f0a11", "client-1", "product-1", MovementType.DEPOSIT, 150.0, LocalDateTime.now());
+        MDC.put("traceId", "4bf92f3577b34da6a3ce929d0e0e4736");
+        MDC.put("correlationId", "4bf92f3577b34da6a3ce929d0e0e4736");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void saveRequestLogs() {
+        if ("before".equals(pipeline)) {
+            log.info("Registrando nuevo movimiento: {}", movement);
+        } else if (log.isInfoEnabled()) {
+            log.info("Registrando nuevo movimiento: cliente {} producto {} tipo {} monto {}",
+                    movement.getClientId(), movement.getProductId(), movement.getType(), movement.getAmount());
+        }
+        log.info("Validando movimiento para producto: {}", movement.getProductId());
+        log.info("Cantidad de movimientos este mes: {}", 12L);
+        log.info("Actualizando balance del producto {} nuevo saldo: {}", movement.getProductId(), 1500.0);
+        log.debug("Detalle deshabilitado {} {} {}", movement.getId(), movement.getClientId(), movement.getAmount());
+    }
+}
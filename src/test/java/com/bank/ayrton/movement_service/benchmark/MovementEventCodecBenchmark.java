@@ -0,0 +1,66 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import com.bank.ayrton.movement_service.config.MovementEventDeserializer;
+import com.bank.ayrton.movement_service.dto.BootcoinTransactionEvent;
+import com.bank.ayrton.movement_service.dto.TransferMethod;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.concurrent.TimeUnit;
+
+// bytes por evento y eventos/s deserializados: JsonDeserializer con type mapper (como antes) vs JSON y Smile por topico
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovementEventCodecBenchmark {
+
+    private static final String TOPIC = "bootcoin.account.transfer";
+
+    @Param({"json-type-mapper", "json", "smile"})
+    public String format;
+
+    private byte[] payload;
+    private RecordHeaders headers;
+    private JsonDeserializer<Object> legacy;
+    private MovementEventDeserializer deserializer;
+
+    @Setup
+    public void setup() throws Exception {
+        BootcoinTransactionEvent event = new BootcoinTransactionEvent(
+                "6650c1f2a9d3e41b2c7f0a11", "wallet-000123456", "wallet-000654321", 1520.75, TransferMethod.ACCOUNT);
+        payload = "smile".equals(format)
+                ? new SmileMapper().writeValueAsBytes(event)
+                : new ObjectMapper().writeValueAsBytes(event);
+        System.out.printf("%n%s: %d bytes por evento%n", format, payload.length);
+
+        headers = new RecordHeaders();
+        headers.add("__TypeId__", BootcoinTransactionEvent.class.getName().getBytes());
+        legacy = new JsonDeserializer<>();
+        legacy.addTrustedPackages("*");
+        deserializer = new MovementEventDeserializer();
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        if ("json-type-mapper".equals(format)) {
+            return legacy.deserialize(TOPIC, headers, payload);
+        }
+        return deserializer.deserialize(TOPIC, headers, payload);
+    }
+}
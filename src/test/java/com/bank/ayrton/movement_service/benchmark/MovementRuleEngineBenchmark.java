@@ -0,0 +1,107 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import com.bank.ayrton.movement_service.config.ValidationRuleProperties;
+import com.bank.ayrton.movement_service.dto.ClientDto;
+import com.bank.ayrton.movement_service.dto.ProductDto;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.entity.ProductSubtype;
+import com.bank.ayrton.movement_service.service.rules.MovementRuleEngine;
+import com.bank.ayrton.movement_service.service.rules.RuleSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// validacion de un movimiento: cadena de ifs original vs tabla compilada del motor de reglas.
+// Se mide solo la parte sincrona (sin Mongo ni WebClient); correr con -prof gc para ver asignaciones
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovementRuleEngineBenchmark {
+
+    private static final int TODAY = 15;
+
+    private MovementRuleEngine engine;
+    private ProductDto[] products;
+    private MovementType[] types;
+    private ClientDto client;
+    private Movement movement;
+    private int next;
+
+    @Setup
+    public void setup() {
+        engine = new MovementRuleEngine(new ValidationRuleProperties(), null);
+        ProductSubtype[] subtypes = ProductSubtype.values();
+        products = new ProductDto[subtypes.length];
+        for (int i = 0; i < subtypes.length; i++) {
+            products[i] = new ProductDto();
+            products[i].setSubtype(subtypes[i]);
+            products[i].setAllowedMovementDay(TODAY);
+            products[i].setCreditLimit(1_000_000.0);
+        }
+        types = MovementType.values();
+        client = new ClientDto();
+        client.setType("personal");
+        movement = new Movement();
+        movement.setAmount(100.0);
+    }
+
+    @Benchmark
+    public String legacyIfChain() {
+        ProductDto product = nextProduct();
+        return legacy(movement, product, client, 0);
+    }
+
+    @Benchmark
+    public String ruleEngine() {
+        ProductDto product = nextProduct();
+        RuleSet rules = engine.rulesFor(product.getSubtype(), movement.getType());
+        String error = rules.checkBeforeCount(movement, product, client, TODAY);
+        return error != null ? error : rules.checkAfterCount(movement, product, client, 0, TODAY);
+    }
+
+    private ProductDto nextProduct() {
+        int i = next++;
+        movement.setType(types[i % types.length]);
+        return products[i % products.length];
+    }
+
+    private static String legacy(Movement movement, ProductDto product, ClientDto client, long movementCount) {
+        if (product.getSubtype() == ProductSubtype.CREDIT_CARD &&
+                !"personal".equalsIgnoreCase(client.getType()) &&
+                !"empresarial".equalsIgnoreCase(client.getType())) {
+            return "Tipo de cliente no válido para tarjeta de crédito";
+        }
+        if (product.getSubtype() == ProductSubtype.FIXED_TERM && movement.getType() == MovementType.WITHDRAWAL) {
+            int today = TODAY;
+            if (product.getAllowedMovementDay() != null && product.getAllowedMovementDay() != today) {
+                return "Movimiento no permitido: solo se puede hacer el día permitido.";
+            }
+        }
+        if (product.getFreeTransactionLimit() != null && product.getTransactionFee() != null &&
+                movementCount >= product.getFreeTransactionLimit()) {
+            movement.setAmount(movement.getAmount() + product.getTransactionFee());
+        }
+        if ((product.getSubtype() == ProductSubtype.PERSONAL_CREDIT ||
+                product.getSubtype() == ProductSubtype.BUSINESS_CREDIT ||
+                product.getSubtype() == ProductSubtype.CREDIT_CARD) &&
+                movement.getType() == MovementType.WITHDRAWAL) {
+            if (product.getCreditLimit() != null && movement.getAmount() > product.getCreditLimit()) {
+                return "El monto excede el límite de crédito.";
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import com.bank.ayrton.movement_service.api.movement.MovementWriter;
+import com.bank.ayrton.movement_service.entity.Movement;
+import com.bank.ayrton.movement_service.entity.MovementType;
+import com.bank.ayrton.movement_service.service.movement.BatchingMovementWriter;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// inserts por segundo contra un Mongo local: un insert por movimiento vs buffer de escritura (group commit).
+// Requiere mongod en localhost:27017 (o -Dbenchmark.mongo.uri=...), usa la base movement-benchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MovementWriterBenchmark {
+
+    private static final int INSERTS_PER_INVOCATION = 2000;
+
+    @Param({"direct", "batching"})
+    public String writer;
+
+    @Param({"64", "512"})
+    public int concurrency;
+
+    private MongoClient client;
+    private ReactiveMongoTemplate template;
+    private MovementWriter movementWriter;
+
+    @Setup
+    public void setup() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri", "mongodb://localhost:27017"));
+        template = new ReactiveMongoTemplate(client, "movement-benchmark");
+        template.dropCollection(Movement.class).block();
+        movementWriter = "batching".equals(writer)
+                ? new BatchingMovementWriter(template, 256, Duration.ofMillis(2), 4)
+                : new DirectWriter(template);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (movementWriter instanceof BatchingMovementWriter batching) {
+            batching.destroy();
+        }
+        client.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERTS_PER_INVOCATION)
+    public Movement insertConcurrently() {
+        return Flux.range(0, INSERTS_PER_INVOCATION)
+                .flatMap(i -> movementWriter.insert(new Movement(null, "client-" + (i % 100), "product-" + (i % 1000),
+                        MovementType.DEPOSIT, 10.0, LocalDateTime.now())), concurrency)
+                .blockLast();
+    }
+
+    // mismo camino que DirectMovementWriter (repository.save) pero sin levantar el contexto de Spring
+    private record DirectWriter(ReactiveMongoTemplate template) implements MovementWriter {
+        @Override
+        public Mono<Movement> insert(Movement movement) {
+            return template.save(movement);
+        }
+
+        @Override
+        public Flux<Movement> insertAll(List<Movement> movements) {
+            return Flux.fromIterable(movements).flatMap(template::save);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.bank.ayrton.movement_service.benchmark;
+
+import com.bank.ayrton.movement_service.service.velocity.LocalVelocityWindowStore;
+import com.bank.ayrton.movement_service.service.velocity.VelocityRule;
+import com.bank.ayrton.movement_service.service.velocity.VelocityScope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// costo de una validacion de velocidad en memoria con millones de clientes ya cargados
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class VelocityCheckBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int keys;
+
+    private LocalVelocityWindowStore store;
+    private VelocityRule rule;
+    private String[] clientIds;
+
+    @Setup
+    public void setup() {
+        // sin limite para que cada llamada haga el recorrido completo (leer ventana + sumar)
+        rule = new VelocityRule(0, VelocityScope.CLIENT, 300_000, 50_000, Long.MAX_VALUE, Long.MAX_VALUE);
+        store = new LocalVelocityWindowStore(List.of(rule), 6);
+        clientIds = new String[keys];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < keys; i++) {
+            clientIds[i] = "client-" + i;
+            store.record(rule, clientIds[i], 1000, now);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean recordSingleThread() {
+        return record();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean recordContended() {
+        return record();
+    }
+
+    private boolean record() {
+        String key = clientIds[ThreadLocalRandom.current().nextInt(keys)];
+        return store.record(rule, key, 1000, System.currentTimeMillis());
+    }
+}